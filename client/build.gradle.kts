@@ -17,9 +17,21 @@ dependencies {
     implementation("io.grpc:grpc-protobuf:1.36.0")
     implementation("io.grpc:grpc-netty-shaded:1.36.0")
     implementation("io.grpc:grpc-stub:1.36.0")
+    implementation("org.hdrhistogram:HdrHistogram:2.1.12")
+
+    testImplementation("org.junit.jupiter:junit-jupiter-api:5.7.2")
+    testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.7.2")
+    testImplementation("org.assertj:assertj-core:3.20.2")
 }
 
 
 application {
     mainClass.set("com.akkasls.hackathon.Client")
-}
\ No newline at end of file
+}
+
+tasks {
+
+    test {
+        useJUnitPlatform()
+    }
+}
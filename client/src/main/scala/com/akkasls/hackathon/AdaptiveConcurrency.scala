@@ -0,0 +1,110 @@
+package com.akkasls.hackathon
+
+import com.akkasls.hackathon.metrics.Metrics
+import com.google.common.util.concurrent.{FutureCallback, Futures, ListenableFuture, MoreExecutors}
+import com.typesafe.config.Config
+import org.slf4j.LoggerFactory
+
+import scala.collection.mutable
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.Try
+
+/**
+ * Limits the calls in flight with an AIMD limit: it grows by one per window of successful calls as long as their
+ * latency stays within `latencyTolerance` times the best latency recently seen, and is cut down on errors (by half) or on
+ * slower calls (by a tenth). Calls over the limit wait for a slot rather than being rejected.
+ */
+class AdaptiveConcurrency(name: String, initialLimit: Int, minLimit: Int, maxLimit: Int, latencyTolerance: Double) {
+
+  private val latency = Metrics.latency("client_call", "call", name)
+  private val calls = Metrics.counter("client_calls_total", "call", name)
+  private val errors = Metrics.counter("client_call_errors_total", "call", name)
+
+  private val waiting = mutable.Queue.empty[Promise[Unit]]
+  private var limit = initialLimit.toDouble
+  private var inFlight = 0
+  private var bestLatencyNanos = 0L // drifts up slowly so that a lucky call does not hold the limit down forever
+
+  def apply[T](call: => Future[T])(implicit ec: ExecutionContext): Future[T] =
+    acquire().flatMap { _ =>
+      val start = System.nanoTime()
+      val result = Try(call).fold(Future.failed, identity)
+      result.onComplete(outcome => release(System.nanoTime() - start, outcome.isSuccess))
+      result
+    }
+
+  def currentLimit: Int = synchronized(limit.toInt)
+
+  /**
+   * @return calls made, errors, current limit and latency percentiles, since the start.
+   */
+  def report: String = {
+    val histogram = latency.snapshot()
+    def millis(percentile: Double) = histogram.getValueAtPercentile(percentile) / 1e6
+    f"$name: ${calls.sum()} calls, ${errors.sum()} errors, limit $currentLimit, " +
+      f"latency p50 ${millis(50)}%.1f ms p99 ${millis(99)}%.1f ms max ${histogram.getMaxValue / 1e6}%.1f ms"
+  }
+
+  private def acquire(): Future[Unit] = synchronized {
+    if (inFlight < limit.toInt) {
+      inFlight += 1
+      Future.unit
+    } else {
+      val slot = Promise[Unit]()
+      waiting.enqueue(slot)
+      slot.future
+    }
+  }
+
+  private def release(latencyNanos: Long, success: Boolean): Unit = {
+    latency.record(latencyNanos)
+    calls.increment()
+    val ready = synchronized {
+      inFlight -= 1
+      if (!success) {
+        errors.increment()
+        limit = math.max(minLimit, limit / 2)
+      } else {
+        bestLatencyNanos =
+          if (bestLatencyNanos == 0) latencyNanos
+          else math.min(latencyNanos, bestLatencyNanos + bestLatencyNanos / 1000)
+        if (latencyNanos > bestLatencyNanos * latencyTolerance) limit = math.max(minLimit, limit * 0.9)
+        else limit = math.min(maxLimit, limit + 1 / limit)
+      }
+      val ready = mutable.ListBuffer.empty[Promise[Unit]]
+      while (waiting.nonEmpty && inFlight < limit.toInt) {
+        inFlight += 1
+        ready += waiting.dequeue()
+      }
+      ready
+    }
+    ready.foreach(_.success(()))
+  }
+}
+
+object AdaptiveConcurrency {
+
+  private val logger = LoggerFactory.getLogger(classOf[AdaptiveConcurrency])
+
+  def apply(name: String, config: Config): AdaptiveConcurrency = new AdaptiveConcurrency(
+    name,
+    config.getInt("initial-limit"),
+    config.getInt("min-limit"),
+    config.getInt("max-limit"),
+    config.getDouble("latency-tolerance")
+  )
+
+  def log(limiters: AdaptiveConcurrency*): Unit = limiters.foreach(limiter => logger.info(limiter.report))
+
+  implicit class ListenableFutureOps[T](future: ListenableFuture[T]) {
+    def asScala: Future[T] = {
+      val promise = Promise[T]()
+      Futures.addCallback(future, new FutureCallback[T] {
+        override def onSuccess(result: T): Unit = promise.success(result)
+
+        override def onFailure(t: Throwable): Unit = promise.failure(t)
+      }, MoreExecutors.directExecutor())
+      promise.future
+    }
+  }
+}
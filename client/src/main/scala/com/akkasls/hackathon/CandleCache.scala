@@ -0,0 +1,123 @@
+package com.akkasls.hackathon
+
+import akka.NotUsed
+import akka.actor.typed.ActorSystem
+import akka.stream.scaladsl.{Sink, Source}
+import com.akkasls.hackathon.candles.{CandleSeries, CandleStore}
+import org.slf4j.LoggerFactory
+
+import java.nio.file.{Files, Path, StandardCopyOption}
+import java.time.Instant
+import java.util.Comparator
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.CollectionConverters._
+import scala.util.Using
+
+/**
+ * Historical candles kept on disk in a [[CandleStore]] per symbol and interval. Only the ranges missing from the
+ * store are downloaded: candles more recent than the last one stored and, when asked for older candles than stored,
+ * the ones before the first. Only closed candles are stored (and served), since the price of the current one is
+ * still moving. When offline nothing is downloaded and only what is stored is served.
+ *
+ * Older candles are prepended by rebuilding the store aside and swapping it in with atomic renames, the current store
+ * being moved aside first, so that a crash at any point leaves either the current or the rebuilt store to recover.
+ */
+class CandleCache(root: Path, offline: Boolean)(implicit system: ActorSystem[_]) {
+
+  private val logger = LoggerFactory.getLogger(classOf[CandleCache])
+
+  private implicit val ec: ExecutionContext = system.executionContext
+
+  /**
+   * @param download candles between two instants, in time order.
+   */
+  def candles(symbol: String, interval: String, from: Instant,
+              download: (Instant, Instant) => Source[CandleStick, NotUsed]): Source[CandleStick, NotUsed] =
+    Source.futureSource(for {
+      _ <- Future(recover(symbol, interval))
+      _ <- sync(symbol, interval, from, download)
+    } yield {
+      val series = Using.resource(CandleStore.open(root, symbol, interval))(_.range(from.toEpochMilli, Long.MaxValue))
+      Source(0 until series.size()).map(series.candle(_))
+    }).mapMaterializedValue(_ => NotUsed)
+
+  private def sync(symbol: String, interval: String, from: Instant,
+                   download: (Instant, Instant) => Source[CandleStick, NotUsed]): Future[Unit] =
+    if (offline) Future.unit
+    else {
+      val now = Instant.now()
+      val (size, first, last) = Using.resource(CandleStore.open(root, symbol, interval)) { store =>
+        (store.size(), if (store.size() > 0) store.all().time(0) else Long.MaxValue, store.lastTime())
+      }
+      val older =
+        if (size > 0 && from.toEpochMilli < first) {
+          logger.info("Downloading {} {} candles before {}", symbol, interval, Instant.ofEpochMilli(first))
+          prepend(symbol, interval, download(from, Instant.ofEpochMilli(first)).filter(_.getTime < first))
+        } else Future.unit
+      older.flatMap { _ =>
+        val newerFrom = if (size > 0) Instant.ofEpochMilli(last + 1) else from
+        logger.info("Downloading {} {} candles after {}", symbol, interval, newerFrom)
+        append(symbol, interval, download(newerFrom, now).filter(_.getTime <= now.toEpochMilli))
+      }
+    }
+
+  private def append(symbol: String, interval: String, candles: Source[CandleStick, NotUsed]): Future[Unit] = {
+    val store = CandleStore.open(root, symbol, interval)
+    candles.grouped(1000)
+      .runWith(Sink.foreach(batch => store.append(series(batch))))
+      .andThen(_ => store.close())
+      .map(_ => ())
+  }
+
+  /**
+   * The store is append only: the older candles and the stored ones are copied to a new store which then replaces
+   * the current one, see [[recover]].
+   */
+  private def prepend(symbol: String, interval: String, candles: Source[CandleStick, NotUsed]): Future[Unit] =
+    candles.runWith(Sink.seq).map { older =>
+      val rebuilt = directory(rebuildRoot, symbol, interval)
+      delete(rebuilt)
+      Using.resources(CandleStore.open(rebuildRoot, symbol, interval), CandleStore.open(root, symbol, interval)) {
+        (rebuilt, current) =>
+          rebuilt.append(series(older))
+          rebuilt.append(current.all())
+      }
+      val current = directory(root, symbol, interval)
+      val replaced = directory(replacedRoot, symbol, interval)
+      delete(replaced)
+      Files.createDirectories(replaced.getParent)
+      Files.move(current, replaced, StandardCopyOption.ATOMIC_MOVE)
+      Files.move(rebuilt, current, StandardCopyOption.ATOMIC_MOVE)
+      delete(replaced)
+    }
+
+  /**
+   * Completes or rolls back a prepend interrupted by a crash: the current store is only ever missing between its two
+   * renames, when it was moved aside as the replaced one, which is then moved back.
+   */
+  private def recover(symbol: String, interval: String): Unit = {
+    val current = directory(root, symbol, interval)
+    val replaced = directory(replacedRoot, symbol, interval)
+    if (Files.exists(replaced)) {
+      if (Files.exists(current)) delete(replaced)
+      else {
+        logger.warn("Restoring {} {} candles moved aside by an interrupted prepend", symbol, interval)
+        Files.move(replaced, current, StandardCopyOption.ATOMIC_MOVE)
+      }
+    }
+    delete(directory(rebuildRoot, symbol, interval))
+  }
+
+  private def rebuildRoot: Path = root.resolve(".rebuild")
+
+  private def replacedRoot: Path = root.resolve(".replaced")
+
+  private def directory(root: Path, symbol: String, interval: String): Path = root.resolve(symbol).resolve(interval)
+
+  private def series(candles: Seq[CandleStick]): CandleSeries = CandleSeries.of(candles.asJava)
+
+  private def delete(path: Path): Unit =
+    if (Files.exists(path)) {
+      Using.resource(Files.walk(path))(_.sorted(Comparator.reverseOrder[Path]()).forEach(p => Files.delete(p)))
+    }
+}
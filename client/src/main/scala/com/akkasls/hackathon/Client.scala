@@ -8,12 +8,14 @@ import akka.stream.RestartSettings
 import akka.stream.alpakka.csv.scaladsl.CsvFormatting
 import akka.stream.scaladsl.{FileIO, Flow, RestartSource, Sink, Source}
 import akka.{Done, NotUsed}
+import com.akkasls.hackathon.AdaptiveConcurrency.ListenableFutureOps
+import com.akkasls.hackathon.entities.MarketEntity
+import com.akkasls.hackathon.metrics.Metrics
 import com.typesafe.config.{Config, ConfigFactory}
 import io.grpc.netty.shaded.io.grpc.netty.{GrpcSslContexts, NettyChannelBuilder}
 import org.slf4j.LoggerFactory
 import play.api.libs.json._
 
-import java.net.URI
 import java.net.http.HttpResponse.BodyHandlers
 import java.net.http.{HttpClient, HttpRequest}
 import java.nio.file.Path
@@ -60,9 +62,20 @@ object Client extends App {
     .usePlaintext()
     .build()
 
-  var tradingServiceClient = CryptoTradingServiceGrpc.newBlockingStub(channel)
-  val tradingViewsClient = TradersViewGrpc.newBlockingStub(channel)
-  val balanceViewsClient = BalanceViewGrpc.newBlockingStub(channel)
+  val tradingServiceClient = CryptoTradingServiceGrpc.newFutureStub(channel)
+  val traderProjectionClient = TraderProjectionViewGrpc.newBlockingStub(channel)
+  val marketServiceClient = MarketServiceGrpc.newFutureStub(channel)
+
+  val concurrencyConfig = config.getConfig("client-concurrency")
+  val newTraderCalls = AdaptiveConcurrency("new-trader", concurrencyConfig)
+  // not limited: each market has a single publish in flight, to deliver its candles in order, and a publish only
+  // completes once every trader of the market has processed its candles
+  val publishCandlesLatency = Metrics.latency("client_call", "call", "publish-candles")
+  system.scheduler.scheduleAtFixedRate(10.seconds, 10.seconds)(() => AdaptiveConcurrency.log(newTraderCalls))
+
+  val exchange = new Exchange(config.getString("exchange-url"), HttpExecutor)
+  val candleCache = new CandleCache(Path.of(config.getString("candle-cache.directory")),
+    config.getBoolean("candle-cache.offline"))
 
   val testRun = config.getString("test-run-id")
   val candleSize = config.getDuration("candlestick-size").toMinutes.minutes
@@ -78,10 +91,10 @@ object Client extends App {
 
   val backTest = traders.flatMap { assetPairsToTraders =>
     Future.traverse(assetPairsToTraders.toList) {
-      case (assetPair, traders) => sendHistoricalCandles(assetPair, traders, config)
+      case (assetPair, _) => sendHistoricalCandles(assetPair, config)
         .flatMap { _ =>
           if (config.getBoolean("connect-to-live-feed")) {
-            sendLiveCandles(assetPair, traders, config.getDuration("candlestick-size").toMinutes)._1.map(_ => Done)
+            sendLiveCandles(assetPair)._1.map(_ => Done)
           } else Future.successful(Done)
         }
     }
@@ -98,16 +111,17 @@ object Client extends App {
 
   backTest.onComplete {
     case any =>
+      AdaptiveConcurrency.log(newTraderCalls)
       logger.info("Backtest {} completed with {}", testRun, any)
       sys.exit(0)
   }
 
   def queryBalances(testRun: String) = {
+    val pollInterval = config.getDuration("balance-poll-interval").toMillis.millis
+    val skew = config.getDuration("balance-updates-skew").toMillis
 
-    Source.tick(Duration.Zero, 5.second, Done)
-      .map { _ =>
-        balanceViewsClient.getTradersBalance(ByTestRun.newBuilder().setTestRunId(testRun).build())
-      }.mapConcat(_.asScala)
+    Source(AssetPairs.all)
+      .flatMapMerge(AssetPairs.all.size, balanceUpdates(testRun, _, pollInterval, skew))
       .map { state =>
         List[String](
           state.getTraderId,
@@ -126,6 +140,39 @@ object Client extends App {
 
   }
 
+  /**
+   * Balances of the traders of a market changed since the previous poll, paged on the wall clock time the view applied
+   * each change rather than on the time of the candles, as the traders of a market can be whole batches of candles
+   * apart. The offset is the latest change seen, less `skew` as the view applies the changes of different traders
+   * concurrently so one applied slightly earlier may only be visible later; rows re-read within that window are
+   * dropped unless they changed again. A poll is only issued once the previous rows have been consumed.
+   */
+  def balanceUpdates(testRun: String, assetPair: AssetPair, pollInterval: FiniteDuration, skew: Long): Source[TraderBalance, NotUsed] = {
+    val symbol = s"${assetPair._1}/${assetPair._2}"
+    Source.unfoldAsync(BalanceOffset(Long.MinValue, Map.empty)) { offset =>
+      grpcCall {
+        traderProjectionClient.getTradersBalanceUpdates(BalanceUpdatesRequest.newBuilder()
+          .setTestRunId(testRun)
+          .setSymbol(symbol)
+          .setUpdatedAfter(offset.updatedAfter(skew))
+          .build()).asScala.toList
+      }.map { rows =>
+        val changed = rows.filterNot(row => offset.appliedAt.get(row.getTraderId).contains(row.getAppliedAt))
+        Some(offset.advance(changed) -> changed)
+      }
+    }.throttle(1, pollInterval)
+      .mapConcat(identity)
+  }
+
+  case class BalanceOffset(latest: Long, appliedAt: Map[String, Long]) {
+    def updatedAfter(skew: Long): Long = if (latest == Long.MinValue) Long.MinValue else latest - skew
+
+    def advance(changed: List[TraderBalance]): BalanceOffset = BalanceOffset(
+      (latest :: changed.map(_.getAppliedAt)).max,
+      appliedAt ++ changed.map(row => row.getTraderId -> row.getAppliedAt)
+    )
+  }
+
   def createTraders(testRun: String, n: Int, candleSize: Duration, assetPair: AssetPair): Future[Seq[String]] = {
     Source(List.fill(n) {
 
@@ -141,88 +188,75 @@ object Client extends App {
           .setTestRunId(testRun)
           .setBaseAsset(assetPair._1)
           .setQuoteAsset(assetPair._2)
+          .setInterval(s"${candleSize.toMinutes}m")
           .setMaType(movingAverageType)
           .setShortMaPeriod(shortMaPeriod)
           .setLongMaPeriod(longMaPeriod)
           .setBaseBalance(1)
           .setQuoteBalance(1000)
           .setThreshold(threshold.toDouble)
+          .setMaUpdatesEvery(config.getInt("ma-updates-every"))
         ).build()
-    }).mapAsyncUnordered(8) { command =>
-      logger.info("Sending command {}", command)
-      grpcCall {
-        tradingServiceClient.newTrader(command)
+    }).mapAsyncUnordered(concurrencyConfig.getInt("max-limit")) { command =>
+      logger.debug("Sending command {}", command)
+      newTraderCalls {
+        tradingServiceClient.newTrader(command).asScala
       }.map(_ => command.getTraderId())
     }.runWith(Sink.seq[String])
   }
 
-  def sendLiveCandles(assetPair: AssetPair, traders: List[String], candleSizeInMinutes: Long) = {
+  def sendLiveCandles(assetPair: AssetPair) = {
     val symbol = s"${assetPair._1.toLowerCase}${assetPair._2.toLowerCase}"
-    val request = WebSocketRequest(s"wss://stream.binance.com:9443/ws/$symbol@kline_${candleSizeInMinutes}m")
+    val request = WebSocketRequest(s"wss://stream.binance.com:9443/ws/$symbol@kline_${MarketEntity.BASE_INTERVAL}")
 
     val webSocketFlow: Flow[Message, Message, NotUsed] =
       Flow[Message].mapConcat {
         case message: TextMessage.Strict =>
           val json = Json.parse(message.text)
           if ((json \ "k" \ "x").as[Boolean]) List(json.as[CandleStick]) else List.empty
-      }.mapConcat { candle =>
-        traders.map(traderId => AddCandleCommand.newBuilder().setCandle(candle).setTraderId(traderId).build())
-      }.mapAsync(8) { command =>
-        grpcCall {
-          tradingServiceClient.addCandle(command)
-        }
+      }.map { candle =>
+        PublishCandleCommand.newBuilder().setCandle(candle).setMarketId(baseMarketId(assetPair)).build()
+      }.mapAsync(1) { command =>
+        timed(publishCandlesLatency)(marketServiceClient.publishCandle(command).asScala)
       }.mapConcat(_ => List.empty[Message])
 
     Http().singleWebSocketRequest(request, webSocketFlow)
 
   }
 
-  def sendHistoricalCandles(assetPair: AssetPair, traders: List[String], config: Config) = {
+  /**
+   * Candles are sent at the base interval of the markets, which aggregate them for the traders of coarser intervals.
+   */
+  def sendHistoricalCandles(assetPair: AssetPair, config: Config) = {
     val from = Instant.now().minusMillis(config.getDuration("historical-load").toMillis)
-    val candleSize = config.getDuration("candlestick-size").toMinutes.minutes
-    getHistoricalCandles(from, candleSize, assetPair)
-      .mapConcat { candle =>
-        traders.map(traderId => AddCandleCommand.newBuilder().setCandle(candle).setTraderId(traderId).build())
+    val symbol = s"${assetPair._1.toUpperCase}${assetPair._2.toUpperCase}"
+    candleCache.candles(symbol, MarketEntity.BASE_INTERVAL, from,
+      (start, end) => exchange.candles(symbol, 1.minute, start, end))
+      .grouped(config.getInt("historical-batch-size"))
+      .map { candles =>
+        PublishCandlesCommand.newBuilder()
+          .addAllCandles(candles.asJava)
+          .setSummary(config.getBoolean("historical-summary"))
+          .setMarketId(baseMarketId(assetPair))
+          .build()
       }
-      .mapAsync(8) { command =>
-        grpcCall(tradingServiceClient.addCandle(command))
+      // one call in flight per market, so that its traders get the candles in time order
+      .mapAsync(1) { command =>
+        timed(publishCandlesLatency)(marketServiceClient.publishCandles(command).asScala)
       }
       .run()
   }
 
-  def getHistoricalCandles(from: Instant, interval: Duration, assetPair: AssetPair): Source[CandleStick, NotUsed] = {
-    val symbol = s"${assetPair._1.toUpperCase}${assetPair._2.toUpperCase}"
-    val baseUrl = s"https://api.binance.com/api/v3/klines?symbol=$symbol&interval=${interval.toMinutes}m&limit=1000"
-    val stepInMillis = interval.toMillis * 1000
-    implicit val client = HttpClient.newBuilder().executor(HttpExecutor).build()
-    val requestBuilder = HttpRequest.newBuilder().GET()
-
-    Source.unfold(from) {
-      case s if s.isBefore(Instant.now()) => Some(s.plusMillis(stepInMillis), s)
-      case _ => None
-    }.map { startTime: Instant =>
-      val now = Instant.now()
-      val from = startTime
-      val to = startTime.plusMillis(stepInMillis)
-      val cappedTo = if (to.isAfter(now)) now else to
-      logger.info("Pulling {} candlesticks between {} and {} with interval {} minutes", symbol, from, cappedTo, interval.toMinutes)
-      requestBuilder.GET().uri(URI.create(s"$baseUrl&startTime=${from.toEpochMilli}&endTime=${cappedTo.toEpochMilli}")).build()
-    }.throttle(50, 1.second) // What's the binance rate limit?
-      .mapAsync(8) {
-        Retriable.callApiWithRetries
-      }
-      .map(response => Json.parse(response.body()))
-      .mapConcat {
-        case xs: JsArray => xs.value.map {
-          case JsArray(entries) =>
-            CandleStick.newBuilder()
-              .setTime(entries(6).as[Long])
-              .setClosingPrice(entries(4).as[String].toDouble)
-              .build()
-        }
-      }
+  def timed[T](latency: Metrics.Latency)(call: => Future[T]): Future[T] = {
+    val start = System.nanoTime()
+    val result = call
+    result.onComplete(_ => latency.recordSince(start))
+    result
   }
 
+  private def baseMarketId(assetPair: AssetPair): String =
+    MarketEntity.baseMarketId(testRun, s"${assetPair._1}/${assetPair._2}")
+
   private def fixDigits(value: Double): String = BigDecimal(value).setScale(6, RoundingMode.HALF_EVEN).toString()
 
   private def grpcCall[T](f: => T): Future[T] = Future(f)(ExecutionContext.fromExecutor(GrpcExecutor))
@@ -230,8 +264,12 @@ object Client extends App {
 
 object CandleStickFormats {
   implicit val reads: Reads[CandleStick] = (json: JsValue) => JsSuccess(CandleStick.newBuilder()
-    .setTime((json \ "E").as[Long])
+    .setTime((json \ "k" \ "T").as[Long])
+    .setOpenPrice((json \ "k" \ "o").as[String].toDouble)
+    .setHighPrice((json \ "k" \ "h").as[String].toDouble)
+    .setLowPrice((json \ "k" \ "l").as[String].toDouble)
     .setClosingPrice((json \ "k" \ "c").as[String].toDouble)
+    .setVolume((json \ "k" \ "v").as[String].toDouble)
     .build())
 }
 
@@ -0,0 +1,62 @@
+package com.akkasls.hackathon
+
+import akka.NotUsed
+import akka.actor.typed.ActorSystem
+import akka.stream.scaladsl.Source
+import org.slf4j.LoggerFactory
+import play.api.libs.json.{JsArray, Json}
+
+import java.net.URI
+import java.net.http.{HttpClient, HttpRequest}
+import java.time.Instant
+import java.util.concurrent.Executor
+import scala.concurrent.duration._
+
+/**
+ * Historical candles of the exchange, through its klines API at the given base URL (i.e. https://api.binance.com or a
+ * local stub serving the same API).
+ */
+class Exchange(baseUrl: String, executor: Executor)(implicit system: ActorSystem[_]) {
+
+  private val logger = LoggerFactory.getLogger(classOf[Exchange])
+
+  private implicit val client: HttpClient = HttpClient.newBuilder().executor(executor).build()
+
+  /**
+   * @param symbol i.e. BTCEUR
+   * @return the candles opened between the two instants, in time order.
+   */
+  def candles(symbol: String, interval: Duration, from: Instant, until: Instant): Source[CandleStick, NotUsed] = {
+    val url = s"$baseUrl/api/v3/klines?symbol=$symbol&interval=${interval.toMinutes}m&limit=1000"
+    val stepInMillis = interval.toMillis * 1000
+    val requestBuilder = HttpRequest.newBuilder().GET()
+
+    Source.unfold(from) {
+      case s if s.isBefore(until) => Some(s.plusMillis(stepInMillis), s)
+      case _ => None
+    }.map { startTime: Instant =>
+      val from = startTime
+      val to = startTime.plusMillis(stepInMillis)
+      val cappedTo = if (to.isAfter(until)) until else to
+      logger.info("Pulling {} candlesticks between {} and {} with interval {} minutes", symbol, from, cappedTo, interval.toMinutes)
+      requestBuilder.GET().uri(URI.create(s"$url&startTime=${from.toEpochMilli}&endTime=${cappedTo.toEpochMilli}")).build()
+    }.throttle(50, 1.second) // What's the binance rate limit?
+      .mapAsync(8) {
+        Retriable.callApiWithRetries
+      }
+      .map(response => Json.parse(response.body()))
+      .mapConcat {
+        case xs: JsArray => xs.value.map {
+          case JsArray(entries) =>
+            CandleStick.newBuilder()
+              .setTime(entries(6).as[Long])
+              .setOpenPrice(entries(1).as[String].toDouble)
+              .setHighPrice(entries(2).as[String].toDouble)
+              .setLowPrice(entries(3).as[String].toDouble)
+              .setClosingPrice(entries(4).as[String].toDouble)
+              .setVolume(entries(5).as[String].toDouble)
+              .build()
+        }
+      }
+  }
+}
@@ -0,0 +1,66 @@
+package com.akkasls.hackathon
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+import scala.concurrent.{ExecutionContext, Future, Promise}
+
+class AdaptiveConcurrencyTest {
+
+  // callbacks run on the completing thread, so that limits are updated by the time a promise is completed
+  private implicit val ec: ExecutionContext = ExecutionContext.parasitic
+
+  @Test
+  def shouldIncreaseTheLimitWhileLatencyHolds(): Unit = {
+    val limiter = new AdaptiveConcurrency("increase", 2, 1, 4, Double.MaxValue)
+
+    (1 to 20).foreach(_ => limiter(Future.successful(())))
+
+    assertThat(limiter.currentLimit).isEqualTo(4)
+  }
+
+  @Test
+  def shouldHalveTheLimitOnErrors(): Unit = {
+    val limiter = new AdaptiveConcurrency("errors", 8, 1, 16, Double.MaxValue)
+
+    limiter(Future.failed(new RuntimeException("unavailable")))
+    assertThat(limiter.currentLimit).isEqualTo(4)
+    limiter(throw new RuntimeException("not even sent"))
+    assertThat(limiter.currentLimit).isEqualTo(2)
+    (1 to 3).foreach(_ => limiter(Future.failed(new RuntimeException("unavailable"))))
+    assertThat(limiter.currentLimit).isEqualTo(1)
+  }
+
+  @Test
+  def shouldDecreaseTheLimitOnSlowerCalls(): Unit = {
+    val limiter = new AdaptiveConcurrency("slower", 10, 1, 16, 2.0)
+    limiter(Future.successful(()))
+    assertThat(limiter.currentLimit).isEqualTo(10)
+
+    val slow = Promise[Unit]()
+    limiter(slow.future)
+    Thread.sleep(50)
+    slow.success(())
+
+    assertThat(limiter.currentLimit).isEqualTo(9)
+  }
+
+  @Test
+  def shouldQueueCallsOverTheLimitUntilASlotIsReleased(): Unit = {
+    val limiter = new AdaptiveConcurrency("queued", 1, 1, 1, Double.MaxValue)
+    val started = new AtomicInteger()
+    val first = Promise[Unit]()
+    val second = Promise[Unit]()
+
+    limiter { started.incrementAndGet(); first.future }
+    val queued = limiter { started.incrementAndGet(); second.future }
+    assertThat(started.get()).isEqualTo(1)
+
+    first.success(())
+    assertThat(started.get()).isEqualTo(2)
+    assertThat(queued.isCompleted).isFalse
+    second.success(())
+    assertThat(queued.isCompleted).isTrue
+  }
+}
@@ -0,0 +1,136 @@
+package com.akkasls.hackathon
+
+import akka.actor.typed.ActorSystem
+import akka.actor.typed.scaladsl.Behaviors
+import akka.stream.scaladsl.Sink
+import com.sun.net.httpserver.HttpServer
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.{AfterEach, Test}
+
+import java.net.InetSocketAddress
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Path}
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import java.util.Comparator
+import java.util.concurrent.{ConcurrentLinkedQueue, Executors}
+import scala.concurrent.Await
+import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
+import scala.util.Using
+
+class CandleCacheTest {
+
+  private implicit val system: ActorSystem[Nothing] = ActorSystem(Behaviors.empty, "candle-cache-test")
+
+  private val now = Instant.now().truncatedTo(ChronoUnit.MINUTES)
+  private val root = Files.createTempDirectory("candles")
+  private val stub = new StubExchange
+  private val exchange = new Exchange(stub.url, Executors.newCachedThreadPool())
+
+  @AfterEach
+  def tearDown(): Unit = {
+    stub.stop()
+    system.terminate()
+    Using.resource(Files.walk(root))(_.sorted(Comparator.reverseOrder[Path]()).forEach(p => Files.delete(p)))
+  }
+
+  @Test
+  def shouldOnlyDownloadCandlesAfterTheLastOneStored(): Unit = {
+    stub.until = now.minus(1, ChronoUnit.HOURS)
+    assertThat(candles(online, now.minus(2, ChronoUnit.HOURS)).size).isEqualTo(60)
+    stub.until = now
+    stub.requests.clear()
+
+    val candlesAfter = candles(online, now.minus(2, ChronoUnit.HOURS))
+
+    assertThat(candlesAfter.map(_.getTime).asJava).isEqualTo(stub.closeTimes(now.minus(2, ChronoUnit.HOURS), now))
+    assertThat(stub.requests.asScala.map(_._1).asJava).containsExactly(now.minus(1, ChronoUnit.HOURS).toEpochMilli)
+    val last = candlesAfter.last
+    assertThat(last.getHighPrice).isEqualTo(last.getOpenPrice + 2)
+    assertThat(last.getLowPrice).isEqualTo(last.getOpenPrice - 2)
+    assertThat(last.getClosingPrice).isEqualTo(last.getOpenPrice + 1)
+    assertThat(last.getVolume).isEqualTo(3)
+  }
+
+  @Test
+  def shouldDownloadOlderCandlesThanTheFirstOneStored(): Unit = {
+    assertThat(candles(online, now.minus(1, ChronoUnit.HOURS)).size).isEqualTo(60)
+    stub.requests.clear()
+
+    val candlesBefore = candles(online, now.minus(2, ChronoUnit.HOURS))
+
+    assertThat(candlesBefore.map(_.getTime).asJava).isEqualTo(stub.closeTimes(now.minus(2, ChronoUnit.HOURS), now))
+    assertThat(stub.requests.asScala.map(_._1).asJava)
+      .containsExactly(now.minus(2, ChronoUnit.HOURS).toEpochMilli, now.toEpochMilli)
+    assertThat(root.resolve(".rebuild").resolve("BTCEUR").resolve("1m")).doesNotExist()
+    assertThat(root.resolve(".replaced").resolve("BTCEUR").resolve("1m")).doesNotExist()
+  }
+
+  @Test
+  def shouldOnlyServeStoredCandlesWhenOffline(): Unit = {
+    candles(online, now.minus(1, ChronoUnit.HOURS))
+    stub.requests.clear()
+
+    val offlineCandles = candles(new CandleCache(root, offline = true), now.minus(2, ChronoUnit.HOURS))
+
+    assertThat(offlineCandles.map(_.getTime).asJava).isEqualTo(stub.closeTimes(now.minus(1, ChronoUnit.HOURS), now))
+    assertThat(stub.requests).isEmpty()
+  }
+
+  @Test
+  def shouldRestoreTheStoreMovedAsideByAnInterruptedPrepend(): Unit = {
+    candles(online, now.minus(1, ChronoUnit.HOURS))
+    val replaced = root.resolve(".replaced").resolve("BTCEUR").resolve("1m")
+    Files.createDirectories(replaced.getParent)
+    Files.move(root.resolve("BTCEUR").resolve("1m"), replaced)
+
+    val recovered = candles(new CandleCache(root, offline = true), now.minus(1, ChronoUnit.HOURS))
+
+    assertThat(recovered.size).isEqualTo(60)
+    assertThat(replaced).doesNotExist()
+  }
+
+  private def online = new CandleCache(root, offline = false)
+
+  private def candles(cache: CandleCache, from: Instant): Seq[CandleStick] =
+    Await.result(cache.candles("BTCEUR", "1m", from,
+      (start, end) => exchange.candles("BTCEUR", 1.minute, start, end)).runWith(Sink.seq), 30.seconds)
+
+  /**
+   * Serves 1m klines opened from 3 hours ago until [[until]], excluded, recording the requested ranges.
+   */
+  private class StubExchange {
+
+    @volatile var until: Instant = now
+    val requests = new ConcurrentLinkedQueue[(Long, Long)]()
+
+    private val server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+    server.createContext("/api/v3/klines", http => {
+      val parameters = http.getRequestURI.getQuery.split('&').map(_.split('=')).map(p => p(0) -> p(1)).toMap
+      val (start, end) = (parameters("startTime").toLong, parameters("endTime").toLong)
+      requests.add(start -> end)
+      val klines = openTimes(now.minus(3, ChronoUnit.HOURS), until)
+        .filter(open => open >= start && open <= end)
+        .take(parameters("limit").toInt)
+        .map(open => s"""[$open,"${price(open)}","${price(open) + 2}","${price(open) - 2}",""" +
+          s""""${price(open) + 1}","3",${open + 59999}]""")
+      val body = klines.mkString("[", ",", "]").getBytes(StandardCharsets.UTF_8)
+      http.sendResponseHeaders(200, body.length)
+      Using.resource(http.getResponseBody)(_.write(body))
+    })
+    server.start()
+
+    def url: String = s"http://localhost:${server.getAddress.getPort}"
+
+    def stop(): Unit = server.stop(0)
+
+    def closeTimes(from: Instant, until: Instant): java.util.List[Long] =
+      openTimes(from, until).map(_ + 59999).asJava
+
+    private def openTimes(from: Instant, until: Instant): Seq[Long] =
+      (from.toEpochMilli until until.toEpochMilli by 60000L)
+
+    private def price(open: Long): Double = 30000 + (open / 60000) % 100
+  }
+}
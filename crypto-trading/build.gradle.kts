@@ -6,6 +6,7 @@ plugins {
     id("io.freefair.lombok")
     id("com.google.protobuf") version "0.8.16"
     id("com.palantir.docker")
+    id("me.champeau.jmh") version "0.6.5"
 }
 
 dependencies {
@@ -17,12 +18,22 @@ dependencies {
     implementation("javax.annotation:javax.annotation-api:1.3.2")
     implementation("io.grpc:grpc-stub:1.38.1")
     implementation("io.grpc:grpc-protobuf:1.38.1")
+    implementation("org.hdrhistogram:HdrHistogram:2.1.12")
 
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.7.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.7.2")
     testImplementation("org.assertj:assertj-core:3.20.2")
 }
 
+jmh {
+    jmhVersion.set("1.32")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+}
+
 protobuf {
     protoc {
         artifact = "com.google.protobuf:protoc:3.17.3"
@@ -50,6 +61,39 @@ tasks {
         useJUnitPlatform()
     }
 
+    register<JavaExec>("backtest") {
+        group = "application"
+        description = "Sweeps trader parameters over a local candle file, i.e. --args='candles.tsv BTC EUR 5m balances.tsv'"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("com.akkasls.hackathon.backtest.BacktestRunner")
+    }
+
+    val nativeImageConfig = register<JavaExec>("nativeImageConfig") {
+        group = "build"
+        description = "Generates the GraalVM reflection config of the protobuf messages, entities and views"
+        val output = layout.buildDirectory.dir("native-image")
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("com.akkasls.hackathon.startup.NativeImageConfig")
+        args(output.get().asFile.absolutePath)
+        outputs.dir(output)
+    }
+
+    register<Exec>("nativeImage") {
+        group = "build"
+        description = "Builds a native executable of the service, needs GraalVM's native-image on the path"
+        dependsOn(classes, nativeImageConfig)
+        doFirst {
+            commandLine("native-image",
+                    "-cp", sourceSets.main.get().runtimeClasspath.asPath,
+                    "-H:ConfigurationFileDirectories=${layout.buildDirectory.dir("native-image").get().asFile}",
+                    "-H:Name=${layout.buildDirectory.file("native/${project.name}").get().asFile}",
+                    "-H:IncludeResources=.*\\.conf$|logback\\.xml",
+                    "--no-fallback",
+                    "--allow-incomplete-classpath",
+                    "com.akkasls.hackathon.CryptoTradingServiceRunner")
+        }
+    }
+
     docker {
       
         dependsOn(clean.get(), distTar.get())
@@ -0,0 +1,90 @@
+package com.akkasls.hackathon.entities;
+
+import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
+import com.akkasls.hackathon.AddCandleCommand;
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * {@link TraderEntity#addCandle} end to end: moving averages, order decision and event handlers, without the proxy.
+ */
+@State(Scope.Thread)
+public class TraderEntityBenchmark {
+
+    @Param({"simple", "exponential"})
+    String maType;
+
+    private TraderEntity entity;
+    private CommandContext ctx;
+    private long time;
+
+    @Setup
+    public void setUp() {
+        var traderId = "BTCEUR_5m_" + maType + "_5_20_0.05_" + UUID.randomUUID();
+        entity = new TraderEntity(traderId);
+        entity.traderAdded(TraderAdded.newBuilder().setTrader(TraderState.newBuilder()
+                        .setTraderId(traderId)
+                        .setTestRunId("benchmark")
+                        .setBaseAsset("BTC")
+                        .setQuoteAsset("EUR")
+                        .setInterval(traderId) // keeps the moving averages of each trial apart
+                        .setMaType(maType)
+                        .setShortMaPeriod(5)
+                        .setLongMaPeriod(20)
+                        .setBaseBalance(1)
+                        .setQuoteBalance(1000)
+                        .setThreshold(0.05))
+                .build());
+        ctx = stubContext(entity);
+    }
+
+    @Benchmark
+    public Object addCandle() {
+        time += 300_000;
+        var candle = CandleStick.newBuilder()
+                .setTime(time)
+                .setClosingPrice(30_000 + 1_000 * Math.sin(time / 3_000_000.0))
+                .build();
+        return entity.addCandle(AddCandleCommand.newBuilder().setCandle(candle).build(), ctx);
+    }
+
+    /**
+     * Emitting applies the event to the entity straight away, as the SDK does. Service calls and effects are stubbed.
+     */
+    private CommandContext stubContext(TraderEntity entity) {
+        return stub(CommandContext.class, entity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, TraderEntity entity) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("emit")) {
+                        if (args[0] instanceof MovingAverageUpdated) {
+                            entity.movingAverageUpdated((MovingAverageUpdated) args[0]);
+                        } else if (args[0] instanceof OrderPlaced) {
+                            entity.orderPlaced((OrderPlaced) args[0]);
+                        }
+                        return null;
+                    }
+                    if (method.getReturnType() == long.class) return 0L;
+                    if (method.getReturnType() == int.class) return 0;
+                    if (method.getReturnType() == boolean.class) return false;
+                    if (method.getReturnType().isInterface()) return stub(method.getReturnType(), entity);
+                    return null;
+                });
+    }
+}
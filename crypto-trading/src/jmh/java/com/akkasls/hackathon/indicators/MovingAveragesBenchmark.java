@@ -0,0 +1,49 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class MovingAveragesBenchmark {
+
+    @Param({"5", "20", "100"})
+    int period;
+
+    @Param({"simple", "exponential", "weighted", "hull", "rsi", "bollinger", "macd", "exactSimple", "exactExponential"})
+    String type;
+
+    private MovingAverage movingAverage;
+    private TechnicalIndicator<?> technicalIndicator;
+    private double price;
+
+    @Setup
+    public void setUp() {
+        switch (type) {
+            case "exactSimple":
+                movingAverage = MovingAverages.exactSimple(period);
+                break;
+            case "exactExponential":
+                movingAverage = MovingAverages.exactExponential(period);
+                break;
+            default:
+                if (Indicators.isMovingAverage(type)) {
+                    movingAverage = Indicators.ofType(type).apply(period);
+                } else {
+                    technicalIndicator = Indicators.technicalIndicatorOfType(type).apply(period);
+                }
+        }
+        price = 30_000;
+    }
+
+    @Benchmark
+    public double updateWith() {
+        price += (price % 7) - 3;
+        return movingAverage != null
+                ? movingAverage.updateWith(price).getValue()
+                : technicalIndicator.updateWith(price).getValue();
+    }
+}
@@ -0,0 +1,55 @@
+package com.akkasls.hackathon.views;
+
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderProjection;
+import com.akkasls.hackathon.TraderState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class ViewsBenchmark {
+
+    private final TraderProjectionView projectionView = new TraderProjectionView();
+
+    private TraderProjection projection;
+    private OrderPlaced buy;
+    private OrderPlaced sell;
+    private MovingAverageUpdated movingAverageUpdated;
+
+    @Setup
+    public void setUp() {
+        var trader = TraderState.newBuilder()
+                .setTraderId("BTCEUR_5m_simple_5_20_0.05")
+                .setTestRunId("benchmark")
+                .setBaseAsset("BTC")
+                .setQuoteAsset("EUR")
+                .setMaType("simple")
+                .setShortMaPeriod(5)
+                .setLongMaPeriod(20)
+                .setBaseBalance(1)
+                .setQuoteBalance(1000)
+                .setThreshold(0.05)
+                .build();
+        projection = projectionView.processTraderAdded(TraderAdded.newBuilder().setTrader(trader).build());
+        buy = OrderPlaced.newBuilder().setTraderId(trader.getTraderId()).setType("BUY").setQuantity(0.001)
+                .setExchangeRate(30_000).setTime(1).build();
+        sell = buy.toBuilder().setType("SELL").build();
+        movingAverageUpdated = MovingAverageUpdated.newBuilder().setPeriod(20).setValue(30_000).setTime(1)
+                .setType("simple").build();
+    }
+
+    @Benchmark
+    public TraderProjection processOrderPlaced() {
+        projection = projectionView.processOrderPlaced(buy, projection);
+        return projection = projectionView.processOrderPlaced(sell, projection);
+    }
+
+    @Benchmark
+    public TraderProjection processMovingAverageUpdated() {
+        return projectionView.processMovingAverageUpdated(movingAverageUpdated, projection);
+    }
+}
@@ -1,37 +1,71 @@
 package com.akkasls.hackathon;
 
 import com.akkaserverless.javasdk.AkkaServerless;
+import com.akkasls.hackathon.entities.IndicatorEntity;
+import com.akkasls.hackathon.entities.LeaderboardEntity;
+import com.akkasls.hackathon.entities.MarketEntity;
 import com.akkasls.hackathon.entities.TraderEntity;
-import com.akkasls.hackathon.views.BalanceByTestRunView;
-import com.akkasls.hackathon.views.MovingAveragesByPeriodView;
-import com.akkasls.hackathon.views.TradersByTestRunView;
+import com.akkasls.hackathon.metrics.MetricsReporter;
+import com.akkasls.hackathon.startup.Startup;
+import com.akkasls.hackathon.startup.Warmup;
+import com.akkasls.hackathon.views.IndicatorView;
+import com.akkasls.hackathon.views.TraderProjectionView;
 import lombok.SneakyThrows;
 
+import java.util.List;
+
 public class CryptoTradingServiceRunner {
 
+    // entities and views registered below, their handlers are looked up reflectively
+    public static final List<Class<?>> COMPONENTS = List.of(TraderEntity.class, MarketEntity.class,
+            IndicatorEntity.class, LeaderboardEntity.class, TraderProjectionView.class, IndicatorView.class);
+
     @SneakyThrows
     public static void main(String[] args) {
-        new AkkaServerless()
+        if (args.length == 1 && args[0].equals("--warmup-only")) {
+            // training run of the class data sharing archive, see the Dockerfile
+            Warmup.run();
+            service();
+            System.exit(0);
+        }
+        MetricsReporter.start();
+        Warmup.run();
+        var started = service().start();
+        Startup.started();
+        started.toCompletableFuture().get();
+    }
+
+    private static AkkaServerless service() {
+        return new AkkaServerless()
                 .registerEventSourcedEntity(
                         TraderEntity.class,
                         Trading.getDescriptor().findServiceByName("CryptoTradingService"),
                         Trading.getDescriptor()
                         )
+                .registerEventSourcedEntity(
+                        MarketEntity.class,
+                        Trading.getDescriptor().findServiceByName("MarketService"),
+                        Trading.getDescriptor()
+                        )
+                .registerEventSourcedEntity(
+                        IndicatorEntity.class,
+                        Trading.getDescriptor().findServiceByName("IndicatorService"),
+                        Trading.getDescriptor()
+                        )
+                .registerEventSourcedEntity(
+                        LeaderboardEntity.class,
+                        Trading.getDescriptor().findServiceByName("LeaderboardService"),
+                        Trading.getDescriptor()
+                        )
                 .registerView(
-                        TradersByTestRunView.class,
-                        Trading.getDescriptor().findServiceByName("TradersView"),
-                        "tradersView",
-                        Trading.getDescriptor())
-                .registerView(
-                        BalanceByTestRunView.class,
-                        Trading.getDescriptor().findServiceByName("BalanceView"),
-                        "balanceView",
+                        TraderProjectionView.class,
+                        Trading.getDescriptor().findServiceByName("TraderProjectionView"),
+                        "traderProjectionView",
                         Trading.getDescriptor())
                 .registerView(
-                        MovingAveragesByPeriodView.class,
-                        Trading.getDescriptor().findServiceByName("MovingAverageView"),
-                        "movingAverageView",
-                        Trading.getDescriptor())
-                .start().toCompletableFuture().get();
+                        IndicatorView.class,
+                        Trading.getDescriptor().findServiceByName("IndicatorView"),
+                        "indicatorView",
+                        Trading.getDescriptor());
     }
 }
@@ -0,0 +1,144 @@
+package com.akkasls.hackathon.backtest;
+
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderBalance;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.candles.CandleSeries;
+import com.akkasls.hackathon.entities.TraderEntity;
+import com.akkasls.hackathon.indicators.Indicators;
+import com.akkasls.hackathon.indicators.MultiPeriodKernel;
+import com.akkasls.hackathon.views.TraderProjectionView;
+import com.google.protobuf.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs traders over a series of candles in-process, without going through the proxy, gRPC or the journal.
+ * <p>
+ * Orders are decided and applied with the same logic as {@link TraderEntity} and balances are built by
+ * {@link TraderProjectionView}, so results match what the view reports for the same candles. Each distinct moving
+ * average is computed once over the whole series and shared by every trader using it, traders are then evaluated
+ * in parallel. When the traders are known up front, {@link #precompute} computes the simple and exponential moving
+ * averages of all their periods in a single pass with {@link MultiPeriodKernel}.
+ */
+public class Backtest {
+
+    private final CandleSeries candles;
+    private final ConcurrentHashMap<String, double[]> movingAverages = new ConcurrentHashMap<>();
+
+    public Backtest(CandleSeries candles) {
+        this.candles = candles;
+    }
+
+    /**
+     * Computes the moving averages of the given traders ahead of running them, each type in one pass over the series.
+     */
+    public Backtest precompute(Stream<TraderState> traders) {
+        Map<String, int[]> periodsByType = traders.collect(Collectors.groupingBy(TraderState::getMaType,
+                Collectors.flatMapping(trader -> Stream.of(trader.getShortMaPeriod(), trader.getLongMaPeriod()),
+                        Collectors.collectingAndThen(Collectors.toSet(),
+                                periods -> periods.stream().mapToInt(Integer::intValue).toArray()))));
+        periodsByType.forEach(this::precompute);
+        return this;
+    }
+
+    /**
+     * Computes the moving averages of the given type and periods ahead of running the traders using them, in one
+     * pass over the series.
+     */
+    public Backtest precompute(String maType, int[] periods) {
+        double[][] values;
+        switch (maType) {
+            case "simple":
+                values = MultiPeriodKernel.simple(candles.closingPrices(), periods);
+                break;
+            case "exponential":
+                values = MultiPeriodKernel.exponential(candles.closingPrices(), periods);
+                break;
+            default:
+                IntStream.of(periods).parallel().forEach(period -> movingAverage(maType, period));
+                return this;
+        }
+        for (int j = 0; j < periods.length; j++) {
+            movingAverages.put(maType + "_" + periods[j], values[j]);
+        }
+        return this;
+    }
+
+    public List<TraderBalance> run(List<TraderState> traders) {
+        return run(traders.stream()).collect(Collectors.toList());
+    }
+
+    public Stream<TraderBalance> run(Stream<TraderState> traders) {
+        return traders.parallel().map(this::run);
+    }
+
+    public TraderBalance run(TraderState trader) {
+        return run(trader, event -> {
+        });
+    }
+
+    /**
+     * Runs the trader, handing the events a {@link TraderEntity} would have emitted to the given consumer, in order:
+     * the trader added and its orders, moving averages are left out as the view only keeps their latest value.
+     */
+    public TraderBalance run(TraderState trader, Consumer<Message> events) {
+        var shortMa = movingAverage(trader.getMaType(), trader.getShortMaPeriod());
+        var longMa = movingAverage(trader.getMaType(), trader.getLongMaPeriod());
+        var state = trader;
+        var traderAdded = TraderAdded.newBuilder().setTrader(trader).build();
+        events.accept(traderAdded);
+        var projection = TraderProjectionView.traderAdded(traderAdded);
+        var currentShortMa = trader.getShortMaValue();
+        var currentLongMa = trader.getLongMaValue();
+
+        for (int i = 0; i < candles.size(); i++) {
+            var updatedShortMa = shortMa[i];
+            var updatedLongMa = longMa[i];
+            if (!Double.isNaN(updatedShortMa) && !Double.isNaN(updatedLongMa)) {
+                var maybeOrder = TraderEntity.placeOrder(state, candles.time(i), candles.closingPrice(i),
+                        currentShortMa, currentLongMa, updatedShortMa, updatedLongMa);
+                if (maybeOrder.isPresent()) {
+                    events.accept(maybeOrder.get());
+                    state = apply(state, maybeOrder.get());
+                    projection = TraderProjectionView.orderPlaced(maybeOrder.get(), projection);
+                }
+            }
+            if (!Double.isNaN(updatedShortMa)) currentShortMa = updatedShortMa;
+            if (!Double.isNaN(updatedLongMa)) currentLongMa = updatedLongMa;
+        }
+        return TraderProjectionView.toTraderBalance(projection);
+    }
+
+    private static TraderState apply(TraderState state, OrderPlaced order) {
+        switch (order.getType()) {
+            case "BUY":
+                return TraderEntity.buy(state, order.getQuantity(), order.getExchangeRate());
+            case "SELL":
+                return TraderEntity.sell(state, order.getQuantity(), order.getExchangeRate());
+            default:
+                return state;
+        }
+    }
+
+    /**
+     * @return the values of the moving average for every candle of the series, NaN until it is ready.
+     */
+    private double[] movingAverage(String maType, int period) {
+        return movingAverages.computeIfAbsent(maType + "_" + period, key -> {
+            var movingAverage = Indicators.ofType(maType).apply(period);
+            var values = new double[candles.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = movingAverage.updateWith(candles.closingPrice(i)).getValue();
+            }
+            return values;
+        });
+    }
+}
@@ -0,0 +1,149 @@
+package com.akkasls.hackathon.backtest;
+
+import com.akkasls.hackathon.TraderBalance;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.candles.CandleSeries;
+import com.akkasls.hackathon.candles.CandleStore;
+import com.google.protobuf.Message;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sweeps a grid of trader parameters over a candle file, or a {@link CandleStore} directory, in the same ranges
+ * used by the client:
+ * <pre>
+ *   BacktestRunner &lt;candles.tsv|store dir&gt; &lt;base asset&gt; &lt;quote asset&gt; &lt;interval&gt; &lt;balances.tsv&gt;
+ *       [events.bin]
+ * </pre>
+ * When given an events file, the events of every trader are also written to it as an {@link EventLog}, which
+ * {@link ProjectionRebuild} replays.
+ */
+@Slf4j
+public class BacktestRunner {
+
+    private static final String[] MA_TYPES = {"simple", "exponential"};
+    // short periods in [from, to), long ones in [short, short + span)
+    private static final int SHORT_MA_PERIOD_FROM = 5;
+    private static final int SHORT_MA_PERIOD_TO = 20;
+    private static final int LONG_MA_SPAN = 90;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        if (args.length < 5 || args.length > 6) {
+            System.err.println("Usage: BacktestRunner <candles.tsv|store dir> <base asset> <quote asset> <interval> <balances.tsv> [events.bin]");
+            System.exit(1);
+        }
+        var candles = candles(Path.of(args[0]), args[1] + args[2], args[3]);
+        var testRun = "backtest-" + System.currentTimeMillis();
+        var traders = grid(testRun, args[1], args[2], args[3]);
+        var backtest = new Backtest(candles);
+        for (var maType : MA_TYPES) {
+            backtest.precompute(maType, periods());
+        }
+        var count = new AtomicLong();
+        var start = System.nanoTime();
+
+        try (var out = new PrintWriter(Files.newBufferedWriter(Path.of(args[4])))) {
+            if (args.length == 6) {
+                try (var events = new EventLog.Writer(new BufferedOutputStream(
+                        Files.newOutputStream(Path.of(args[5]))))) {
+                    recorded(backtest, traders).forEachOrdered(run -> {
+                        count.incrementAndGet();
+                        out.println(toTsv(run.getKey()));
+                        write(events, run.getKey().getTraderId(), run.getValue());
+                    });
+                }
+            } else {
+                backtest.run(traders).forEachOrdered(balance -> {
+                    count.incrementAndGet();
+                    out.println(toTsv(balance));
+                });
+            }
+        }
+
+        var elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Backtested {} traders over {} candles in {} ms ({} traders/s)", count.get(), candles.size(),
+                elapsedMillis, count.get() * 1000 / elapsedMillis);
+    }
+
+    /**
+     * @return the balance of each trader along with its events, traders still run in parallel.
+     */
+    static Stream<Map.Entry<TraderBalance, List<Message>>> recorded(Backtest backtest, Stream<TraderState> traders) {
+        return traders.parallel().map(trader -> {
+            List<Message> events = new ArrayList<>();
+            return Map.entry(backtest.run(trader, events::add), events);
+        });
+    }
+
+    @SneakyThrows
+    private static void write(EventLog.Writer log, String traderId, List<Message> events) {
+        for (var event : events) {
+            log.write(traderId, event);
+        }
+    }
+
+    private static CandleSeries candles(Path path, String symbol, String interval) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (var store = CandleStore.open(path, symbol, interval)) {
+                return store.all();
+            }
+        }
+        return CandleSeries.read(path);
+    }
+
+    /**
+     * @return every short and long period of the {@link #grid}, derived from its ranges.
+     */
+    static int[] periods() {
+        return IntStream.range(SHORT_MA_PERIOD_FROM, SHORT_MA_PERIOD_TO - 1 + LONG_MA_SPAN).toArray();
+    }
+
+    static Stream<TraderState> grid(String testRun, String baseAsset, String quoteAsset, String interval) {
+        return Stream.of(MA_TYPES).flatMap(maType ->
+                IntStream.range(SHORT_MA_PERIOD_FROM, SHORT_MA_PERIOD_TO).boxed().flatMap(shortMaPeriod ->
+                        IntStream.range(shortMaPeriod, shortMaPeriod + LONG_MA_SPAN).boxed().flatMap(longMaPeriod ->
+                                IntStream.rangeClosed(1, 20).mapToObj(threshold -> {
+                                    var traderId = String.format("%s%s_%s_%s_%d_%d_%.2f", baseAsset, quoteAsset,
+                                            interval, maType, shortMaPeriod, longMaPeriod, threshold / 100.0);
+                                    return TraderState.newBuilder()
+                                            .setTraderId(traderId)
+                                            .setTestRunId(testRun)
+                                            .setBaseAsset(baseAsset)
+                                            .setQuoteAsset(quoteAsset)
+                                            .setInterval(interval)
+                                            .setMaType(maType)
+                                            .setShortMaPeriod(shortMaPeriod)
+                                            .setLongMaPeriod(longMaPeriod)
+                                            .setBaseBalance(1)
+                                            .setQuoteBalance(1000)
+                                            .setThreshold(threshold / 100.0)
+                                            .build();
+                                }))));
+    }
+
+    static String toTsv(TraderBalance balance) {
+        return String.join("\t",
+                balance.getTraderId(),
+                String.valueOf(balance.getLastUpdatedAt()),
+                balance.getBaseAsset(),
+                String.valueOf(balance.getBaseBalance()),
+                String.valueOf(balance.getExchangeRate()),
+                balance.getQuoteAsset(),
+                String.valueOf(balance.getQuoteBalance()),
+                String.valueOf(balance.getBuyOrders()),
+                String.valueOf(balance.getSellOrders()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.akkasls.hackathon.backtest;
+
+import com.akkasls.hackathon.RecordedEvent;
+import com.google.protobuf.Any;
+import com.google.protobuf.Message;
+import lombok.SneakyThrows;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A recorded stream of entity events: length delimited {@link RecordedEvent}s, in the order they were emitted. Written
+ * by {@link BacktestRunner} for the traders it runs, read by {@link ProjectionRebuild}.
+ */
+public class EventLog {
+
+    private EventLog() {
+    }
+
+    /**
+     * @return the events of the stream, read lazily. The stream is not closed.
+     */
+    public static Iterator<RecordedEvent> read(InputStream in) {
+        return new Iterator<>() {
+            private RecordedEvent next = parse();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public RecordedEvent next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var current = next;
+                next = parse();
+                return current;
+            }
+
+            @SneakyThrows
+            private RecordedEvent parse() {
+                return RecordedEvent.parseDelimitedFrom(in);
+            }
+        };
+    }
+
+    /**
+     * Writes events, numbering them per entity from 1.
+     */
+    public static class Writer implements Closeable {
+
+        private final OutputStream out;
+        private final Map<String, Long> sequences = new HashMap<>();
+
+        public Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        public void write(String entityId, Message event) throws IOException {
+            RecordedEvent.newBuilder()
+                    .setEntityId(entityId)
+                    .setSequence(sequences.merge(entityId, 1L, Long::sum))
+                    .setEvent(Any.pack(event))
+                    .build()
+                    .writeDelimitedTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
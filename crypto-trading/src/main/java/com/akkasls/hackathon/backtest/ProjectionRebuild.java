@@ -0,0 +1,148 @@
+package com.akkasls.hackathon.backtest;
+
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.RecordedEvent;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderProjection;
+import com.akkasls.hackathon.views.TraderProjectionView;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rebuilds the trader projections of {@link TraderProjectionView}, from which both {@code TraderState} and
+ * {@code TraderBalance} are derived, out of a recorded event stream (see {@link EventLog}) without going through the
+ * proxy:
+ * <pre>
+ *   ProjectionRebuild &lt;events.bin&gt; &lt;balances.tsv&gt; &lt;traders.bin&gt; [partitions]
+ * </pre>
+ * Events are partitioned by trader id, each partition is replayed in order on its own thread so the result does not
+ * depend on the number of partitions. Traders are written as length delimited {@code TraderState}s.
+ */
+@Slf4j
+public class ProjectionRebuild {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final int partitions;
+
+    public ProjectionRebuild(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be positive");
+        }
+        this.partitions = partitions;
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: ProjectionRebuild <events.bin> <balances.tsv> <traders.bin> [partitions]");
+            System.exit(1);
+        }
+        var partitions = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        var start = System.nanoTime();
+
+        SortedMap<String, TraderProjection> rebuilt;
+        try (var in = Files.newInputStream(Path.of(args[0]))) {
+            rebuilt = new ProjectionRebuild(partitions).rebuild(EventLog.read(in));
+        }
+        try (var balances = new PrintWriter(Files.newBufferedWriter(Path.of(args[1])));
+             var traders = Files.newOutputStream(Path.of(args[2]))) {
+            for (var projection : rebuilt.values()) {
+                balances.println(BacktestRunner.toTsv(TraderProjectionView.toTraderBalance(projection)));
+                TraderProjectionView.toTraderState(projection).writeDelimitedTo(traders);
+            }
+        }
+
+        log.info("Rebuilt {} traders over {} partitions in {} ms", rebuilt.size(), partitions,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return the projection of every trader added in the stream, by trader id.
+     */
+    public SortedMap<String, TraderProjection> rebuild(Iterator<RecordedEvent> events) {
+        var executors = new ArrayList<ExecutorService>();
+        var replays = new ArrayList<Replay>();
+        var tails = new ArrayList<CompletableFuture<Void>>();
+        var batches = new ArrayList<List<RecordedEvent>>();
+        for (int i = 0; i < partitions; i++) {
+            executors.add(Executors.newSingleThreadExecutor());
+            replays.add(new Replay());
+            tails.add(CompletableFuture.completedFuture(null));
+            batches.add(new ArrayList<>(BATCH_SIZE));
+        }
+        try {
+            while (events.hasNext()) {
+                var event = events.next();
+                var partition = Math.floorMod(event.getEntityId().hashCode(), partitions);
+                batches.get(partition).add(event);
+                if (batches.get(partition).size() == BATCH_SIZE) {
+                    submit(partition, batches, replays, tails, executors);
+                }
+            }
+            for (int i = 0; i < partitions; i++) {
+                submit(i, batches, replays, tails, executors);
+            }
+            CompletableFuture.allOf(tails.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executors.forEach(ExecutorService::shutdownNow);
+        }
+
+        var rebuilt = new TreeMap<String, TraderProjection>();
+        replays.forEach(replay -> rebuilt.putAll(replay.projections));
+        return rebuilt;
+    }
+
+    private void submit(int partition, List<List<RecordedEvent>> batches, List<Replay> replays,
+                        List<CompletableFuture<Void>> tails, List<ExecutorService> executors) {
+        var batch = batches.get(partition);
+        var replay = replays.get(partition);
+        tails.set(partition, tails.get(partition).thenRunAsync(() -> batch.forEach(replay::apply),
+                executors.get(partition)));
+        batches.set(partition, new ArrayList<>(BATCH_SIZE));
+    }
+
+    /**
+     * The traders of a partition, only ever accessed by the thread of the partition.
+     */
+    private class Replay {
+
+        private final Map<String, TraderProjection> projections = new HashMap<>();
+        private final Map<String, Long> sequences = new HashMap<>();
+
+        @SneakyThrows
+        void apply(RecordedEvent recorded) {
+            var traderId = recorded.getEntityId();
+            if (recorded.getSequence() <= sequences.getOrDefault(traderId, 0L)) {
+                return;
+            }
+            sequences.put(traderId, recorded.getSequence());
+            var event = recorded.getEvent();
+            var projection = projections.get(traderId);
+            if (event.is(TraderAdded.class)) {
+                projections.put(traderId, TraderProjectionView.traderAdded(event.unpack(TraderAdded.class)));
+            } else if (projection != null && event.is(MovingAverageUpdated.class)) {
+                projections.put(traderId, TraderProjectionView.movingAverageUpdated(
+                        event.unpack(MovingAverageUpdated.class), projection));
+            } else if (projection != null && event.is(OrderPlaced.class)) {
+                projections.put(traderId,
+                        TraderProjectionView.orderPlaced(event.unpack(OrderPlaced.class), projection));
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.akkasls.hackathon.candles;
+
+import com.akkasls.hackathon.CandleStick;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Aggregates candles into candles of a coarser interval (i.e. 1m candles into 5m ones), incrementally.
+ * <p>
+ * Candles are bucketed by their close time, an aggregated candle is complete once a candle closing at the end of its
+ * bucket is added, or when a candle of a later bucket shows that the end of the bucket was missed. Open, high and low
+ * prices fall back to the closing price when unknown (0). Candles not more recent than the last one added are
+ * ignored, including the ones of buckets already completed, so that a re-sent candle cannot reopen its bucket.
+ */
+public class CandleAggregator {
+
+    private final long intervalMillis;
+    private CandleStick pending;
+    private long lastTime;
+
+    public CandleAggregator(String interval) {
+        this(interval, null, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param pending  the candle aggregated so far, see {@link #pending()}.
+     * @param lastTime the time of the last candle added, see {@link #lastTime()}.
+     */
+    public CandleAggregator(String interval, CandleStick pending, long lastTime) {
+        this.intervalMillis = intervalMillis(interval);
+        this.pending = pending;
+        this.lastTime = pending == null ? lastTime : Math.max(lastTime, pending.getTime());
+    }
+
+    /**
+     * @param interval in the format of the exchange, i.e. 1m, 15m, 4h or 1d.
+     */
+    public static long intervalMillis(String interval) {
+        if (interval.length() < 2) {
+            throw new IllegalArgumentException("Invalid interval " + interval);
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid interval " + interval, e);
+        }
+        switch (interval.charAt(interval.length() - 1)) {
+            case 'm':
+                return amount * 60_000;
+            case 'h':
+                return amount * 3_600_000;
+            case 'd':
+                return amount * 86_400_000;
+            case 'w':
+                return amount * 604_800_000;
+            default:
+                throw new IllegalArgumentException("Invalid interval " + interval);
+        }
+    }
+
+    /**
+     * @return the aggregated candles completed by the given ones, in time order. Candles not more recent than the
+     * last one added are ignored.
+     */
+    public List<CandleStick> add(List<CandleStick> candles) {
+        var completed = new ArrayList<CandleStick>();
+        for (var candle : candles) {
+            if (candle.getTime() <= lastTime) {
+                continue;
+            }
+            lastTime = candle.getTime();
+            var closeTime = closeTime(candle.getTime());
+            if (pending != null && closeTime > closeTime(pending.getTime())) {
+                completed.add(complete(pending));
+                pending = null;
+            }
+            pending = pending == null ? start(candle) : merge(pending, candle);
+            if (candle.getTime() == closeTime) {
+                completed.add(complete(pending));
+                pending = null;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return the candle aggregated so far, with the time of the last candle added.
+     */
+    public Optional<CandleStick> pending() {
+        return Optional.ofNullable(pending);
+    }
+
+    /**
+     * @return the time of the last candle added, {@link Long#MIN_VALUE} if none.
+     */
+    public long lastTime() {
+        return lastTime;
+    }
+
+    private long closeTime(long time) {
+        return Math.floorDiv(time, intervalMillis) * intervalMillis + intervalMillis - 1;
+    }
+
+    private CandleStick complete(CandleStick candle) {
+        return candle.toBuilder().setTime(closeTime(candle.getTime())).build();
+    }
+
+    private static CandleStick start(CandleStick candle) {
+        return CandleStick.newBuilder()
+                .setTime(candle.getTime())
+                .setOpenPrice(orClose(candle.getOpenPrice(), candle))
+                .setHighPrice(orClose(candle.getHighPrice(), candle))
+                .setLowPrice(orClose(candle.getLowPrice(), candle))
+                .setClosingPrice(candle.getClosingPrice())
+                .setVolume(candle.getVolume())
+                .build();
+    }
+
+    private static CandleStick merge(CandleStick pending, CandleStick candle) {
+        return pending.toBuilder()
+                .setTime(candle.getTime())
+                .setHighPrice(Math.max(pending.getHighPrice(), orClose(candle.getHighPrice(), candle)))
+                .setLowPrice(Math.min(pending.getLowPrice(), orClose(candle.getLowPrice(), candle)))
+                .setClosingPrice(candle.getClosingPrice())
+                .setVolume(pending.getVolume() + candle.getVolume())
+                .build();
+    }
+
+    private static double orClose(double price, CandleStick candle) {
+        return price == 0 ? candle.getClosingPrice() : price;
+    }
+}
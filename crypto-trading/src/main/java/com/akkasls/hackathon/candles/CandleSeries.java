@@ -0,0 +1,148 @@
+package com.akkasls.hackathon.candles;
+
+import com.akkasls.hackathon.CandleStick;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Candles of a single symbol and interval, in time order, held in primitive arrays or buffers (i.e. memory mapped
+ * by a {@link CandleStore}). Open, high and low prices and volumes are 0 when unknown, as in {@link CandleStick}.
+ */
+public class CandleSeries {
+
+    static final int OPEN = 0;
+    static final int HIGH = 1;
+    static final int LOW = 2;
+    static final int CLOSE = 3;
+    static final int VOLUME = 4;
+    static final int COLUMNS = 5;
+
+    private final LongBuffer times;
+    private final DoubleBuffer[] columns;
+
+    public CandleSeries(long[] times, double[] closingPrices) {
+        this(times, new double[times.length], new double[times.length], new double[times.length], closingPrices,
+                new double[times.length]);
+    }
+
+    public CandleSeries(long[] times, double[] openPrices, double[] highPrices, double[] lowPrices,
+                        double[] closingPrices, double[] volumes) {
+        this(LongBuffer.wrap(times), new DoubleBuffer[]{DoubleBuffer.wrap(openPrices), DoubleBuffer.wrap(highPrices),
+                DoubleBuffer.wrap(lowPrices), DoubleBuffer.wrap(closingPrices), DoubleBuffer.wrap(volumes)});
+    }
+
+    /**
+     * @param columns the prices and volumes, indexed by {@link #OPEN}, {@link #HIGH}, {@link #LOW}, {@link #CLOSE}
+     *                and {@link #VOLUME}.
+     */
+    CandleSeries(LongBuffer times, DoubleBuffer[] columns) {
+        this.times = times.slice();
+        this.columns = new DoubleBuffer[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            if (columns[column].remaining() != times.remaining()) {
+                throw new IllegalArgumentException("Times, prices and volumes must have the same length");
+            }
+            this.columns[column] = columns[column].slice();
+        }
+    }
+
+    public static CandleSeries of(List<CandleStick> candles) {
+        var times = new long[candles.size()];
+        var columns = new double[COLUMNS][candles.size()];
+        for (int i = 0; i < times.length; i++) {
+            var candle = candles.get(i);
+            times[i] = candle.getTime();
+            columns[OPEN][i] = candle.getOpenPrice();
+            columns[HIGH][i] = candle.getHighPrice();
+            columns[LOW][i] = candle.getLowPrice();
+            columns[CLOSE][i] = candle.getClosingPrice();
+            columns[VOLUME][i] = candle.getVolume();
+        }
+        return new CandleSeries(times, columns[OPEN], columns[HIGH], columns[LOW], columns[CLOSE], columns[VOLUME]);
+    }
+
+    /**
+     * Reads a tab separated file of {@code time closing_price} lines, blank lines and lines starting with '#' are
+     * ignored.
+     */
+    public static CandleSeries read(Path path) throws IOException {
+        var times = new long[1024];
+        var closingPrices = new double[1024];
+        var size = 0;
+        try (var lines = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                var separator = line.indexOf('\t');
+                if (size == times.length) {
+                    times = Arrays.copyOf(times, size * 2);
+                    closingPrices = Arrays.copyOf(closingPrices, size * 2);
+                }
+                times[size] = Long.parseLong(line.substring(0, separator).trim());
+                closingPrices[size] = Double.parseDouble(line.substring(separator + 1).trim());
+                size++;
+            }
+        }
+        return new CandleSeries(Arrays.copyOf(times, size), Arrays.copyOf(closingPrices, size));
+    }
+
+    public int size() {
+        return times.limit();
+    }
+
+    public long time(int index) {
+        return times.get(index);
+    }
+
+    public double openPrice(int index) {
+        return columns[OPEN].get(index);
+    }
+
+    public double highPrice(int index) {
+        return columns[HIGH].get(index);
+    }
+
+    public double lowPrice(int index) {
+        return columns[LOW].get(index);
+    }
+
+    public double closingPrice(int index) {
+        return columns[CLOSE].get(index);
+    }
+
+    public double volume(int index) {
+        return columns[VOLUME].get(index);
+    }
+
+    double value(int column, int index) {
+        return columns[column].get(index);
+    }
+
+    public CandleStick candle(int index) {
+        return CandleStick.newBuilder()
+                .setTime(time(index))
+                .setOpenPrice(openPrice(index))
+                .setHighPrice(highPrice(index))
+                .setLowPrice(lowPrice(index))
+                .setClosingPrice(closingPrice(index))
+                .setVolume(volume(index))
+                .build();
+    }
+
+    /**
+     * @return a copy of the closing prices, for kernels working on plain arrays.
+     */
+    public double[] closingPrices() {
+        var copy = new double[size()];
+        columns[CLOSE].duplicate().get(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,215 @@
+package com.akkasls.hackathon.candles;
+
+import com.akkasls.hackathon.CandleStick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.akkasls.hackathon.candles.CandleSeries.CLOSE;
+import static com.akkasls.hackathon.candles.CandleSeries.COLUMNS;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append only, columnar store of the candles of a symbol and interval.
+ * <p>
+ * Each column (time, open, high, low and closing prices, volume) is a file of little endian primitives under
+ * {@code <root>/<symbol>/<interval>/}, read back through memory mapped buffers so that series returned by
+ * {@link #range(long, long)} are not copied. Candles must be appended in time order, candles not more recent than the
+ * last one stored are ignored so that overlapping downloads can be appended as they are. Not safe for concurrent
+ * appends.
+ * <p>
+ * Times are written last, so the size of their file is the number of candles fully written. Stores written before
+ * open, high, low and volume were kept get these columns filled with 0 (unknown) when opened.
+ */
+public class CandleStore implements Closeable {
+
+    private static final String TIMES = "time.bin";
+    // in the order of the columns of CandleSeries
+    private static final List<String> COLUMN_FILES = List.of("open.bin", "high.bin", "low.bin", "close.bin",
+            "volume.bin");
+    private static final int ENTRY_SIZE = Long.BYTES;
+
+    private final FileChannel times;
+    private final FileChannel[] columns;
+    private int size;
+    private long lastTime = Long.MIN_VALUE;
+
+    private int mappedSize = -1;
+    private LongBuffer mappedTimes;
+    private DoubleBuffer[] mappedColumns;
+
+    private CandleStore(FileChannel times, FileChannel[] columns) throws IOException {
+        this.times = times;
+        this.columns = columns;
+        // drop a partially written candle, if any
+        this.size = (int) (Math.min(times.size(), columns[CLOSE].size()) / ENTRY_SIZE);
+        times.truncate((long) size * ENTRY_SIZE);
+        for (var column : columns) {
+            if (column.size() < (long) size * ENTRY_SIZE) {
+                backfill(column);
+            }
+            column.truncate((long) size * ENTRY_SIZE);
+        }
+        if (size > 0) {
+            lastTime = all().time(size - 1);
+        }
+    }
+
+    public static CandleStore open(Path root, String symbol, String interval) throws IOException {
+        var directory = root.resolve(symbol).resolve(interval);
+        Files.createDirectories(directory);
+        var columns = new FileChannel[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            columns[column] = FileChannel.open(directory.resolve(COLUMN_FILES.get(column)), CREATE, READ, WRITE);
+        }
+        return new CandleStore(FileChannel.open(directory.resolve(TIMES), CREATE, READ, WRITE), columns);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the time of the most recent candle or {@link Long#MIN_VALUE} if the store is empty.
+     */
+    public long lastTime() {
+        return lastTime;
+    }
+
+    public boolean append(CandleStick candle) throws IOException {
+        return append(CandleSeries.of(List.of(candle))) == 1;
+    }
+
+    public boolean append(long time, double closingPrice) throws IOException {
+        return append(new CandleSeries(new long[]{time}, new double[]{closingPrice})) == 1;
+    }
+
+    /**
+     * @return the number of candles actually appended.
+     */
+    public int append(CandleSeries candles) throws IOException {
+        var timesBuffer = buffer(candles.size());
+        var columnBuffers = new ByteBuffer[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            columnBuffers[column] = buffer(candles.size());
+        }
+        var appended = 0;
+        for (int i = 0; i < candles.size(); i++) {
+            if (candles.time(i) > lastTime) {
+                lastTime = candles.time(i);
+                timesBuffer.putLong(lastTime);
+                for (int column = 0; column < COLUMNS; column++) {
+                    columnBuffers[column].putDouble(candles.value(column, i));
+                }
+                appended++;
+            }
+        }
+        var position = (long) size * ENTRY_SIZE;
+        for (int column = 0; column < COLUMNS; column++) {
+            write(columns[column], columnBuffers[column].flip(), position);
+        }
+        write(times, timesBuffer.flip(), position);
+        size += appended;
+        return appended;
+    }
+
+    public CandleSeries all() throws IOException {
+        return range(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @return the candles with time in [from, to), backed by the memory mapped files.
+     */
+    public CandleSeries range(long from, long to) throws IOException {
+        remap();
+        var fromIndex = lowerBound(from);
+        var toIndex = Math.max(fromIndex, lowerBound(to));
+        var rangeColumns = new DoubleBuffer[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            rangeColumns[column] = mappedColumns[column].duplicate().position(fromIndex).limit(toIndex);
+        }
+        return new CandleSeries(mappedTimes.duplicate().position(fromIndex).limit(toIndex), rangeColumns);
+    }
+
+    public void flush() throws IOException {
+        times.force(false);
+        for (var column : columns) {
+            column.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (times) {
+            try {
+                flush();
+            } finally {
+                for (var column : columns) {
+                    column.close();
+                }
+            }
+        }
+    }
+
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = mappedSize;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (mappedTimes.get(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void remap() throws IOException {
+        if (mappedSize != size) {
+            var length = (long) size * ENTRY_SIZE;
+            mappedTimes = times.map(FileChannel.MapMode.READ_ONLY, 0, length)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            mappedColumns = new DoubleBuffer[COLUMNS];
+            for (int column = 0; column < COLUMNS; column++) {
+                mappedColumns[column] = columns[column].map(FileChannel.MapMode.READ_ONLY, 0, length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            mappedSize = size;
+        }
+    }
+
+    /**
+     * Fills a column missing from a store written before it was kept with 0, up to the number of candles stored.
+     */
+    private void backfill(FileChannel column) throws IOException {
+        var position = column.size() / ENTRY_SIZE * ENTRY_SIZE;
+        var zeros = ByteBuffer.allocate(64 * 1024);
+        while (position < (long) size * ENTRY_SIZE) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), (long) size * ENTRY_SIZE - position));
+            var length = zeros.remaining();
+            write(column, zeros, position);
+            position += length;
+        }
+    }
+
+    private static ByteBuffer buffer(int entries) {
+        return ByteBuffer.allocate(entries * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
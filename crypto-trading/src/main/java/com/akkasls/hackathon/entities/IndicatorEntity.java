@@ -0,0 +1,144 @@
+package com.akkasls.hackathon.entities;
+
+import com.akkaserverless.javasdk.EntityId;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.akkaserverless.javasdk.eventsourcedentity.Snapshot;
+import com.akkaserverless.javasdk.eventsourcedentity.SnapshotHandler;
+import com.akkasls.hackathon.GetIndicatorCommand;
+import com.akkasls.hackathon.Indicator;
+import com.akkasls.hackathon.IndicatorState;
+import com.akkasls.hackathon.IndicatorUpdated;
+import com.akkasls.hackathon.IndicatorWindow;
+import com.akkasls.hackathon.UpdateIndicatorCommand;
+import com.akkasls.hackathon.indicators.IndicatorRegistry;
+import com.akkasls.hackathon.indicators.IndicatorRegistry.Subscription;
+import com.akkasls.hackathon.indicators.IndicatorRegistry.Window;
+import com.google.protobuf.Empty;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A moving average of a market, fed by the market with each candle (or batch of candles) once rather than by each
+ * of the traders using it, so that its view has a single row per indicator.
+ * <p>
+ * Values come from the same {@link IndicatorRegistry} as the moving averages of the traders, so a value is computed
+ * once per candle whichever of the indicator and its traders gets the candle first. A single event is emitted per
+ * update, whatever the number of candles, and none until the moving average is ready: the candles it was warmed up
+ * with are carried on its first event instead.
+ */
+@EventSourcedEntity(entityType = "indicators", snapshotEvery = 100)
+@Slf4j
+public class IndicatorEntity {
+
+    private final String entityId;
+    private final IndicatorRegistry indicators = IndicatorRegistry.shared();
+
+    private Indicator indicator = Indicator.getDefaultInstance();
+    private Subscription movingAverage;
+    // candles the moving average was warmed up with, not emitted yet
+    private final IndicatorUpdated.Builder warmUp = IndicatorUpdated.newBuilder();
+
+    public IndicatorEntity(@EntityId String entityId) {
+        this.entityId = entityId;
+    }
+
+    public static String indicatorId(String testRunId, String symbol, String interval, String maType, int period) {
+        return MarketEntity.marketId(testRunId, symbol, interval) + "_" + maType + "_" + period;
+    }
+
+    @CommandHandler
+    public Empty updateIndicator(UpdateIndicatorCommand command, CommandContext ctx) {
+        var spec = command.getSpec();
+        var current = subscription(command.getTestRunId(), command.getSymbol(), command.getInterval(),
+                spec.getMaType(), spec.getPeriod());
+        var event = warmUp.clone();
+        var value = Double.NaN;
+        var time = event.getTimesCount() == 0 ? indicator.getTime() : event.getTimes(event.getTimesCount() - 1);
+        for (var candle : command.getCandlesList()) {
+            if (candle.getTime() > time) {
+                value = current.valueAt(candle.getTime(), candle.getClosingPrice());
+                time = candle.getTime();
+                event.addTimes(time).addObservations(candle.getClosingPrice());
+            }
+        }
+        if (event.getTimesCount() == warmUp.getTimesCount()) {
+            return Empty.getDefaultInstance();
+        }
+        if (Double.isNaN(value)) {
+            warmUp.clear().mergeFrom(event.build());
+            return Empty.getDefaultInstance();
+        }
+        warmUp.clear();
+        ctx.emit(event.setIndicator(Indicator.newBuilder()
+                        .setIndicatorId(entityId)
+                        .setSymbol(command.getSymbol())
+                        .setInterval(command.getInterval())
+                        .setTestRunId(command.getTestRunId())
+                        .setMaType(spec.getMaType())
+                        .setPeriod(spec.getPeriod())
+                        .setValue(value)
+                        .setTime(time))
+                .build());
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public Indicator getIndicator(GetIndicatorCommand command) {
+        return indicator;
+    }
+
+    @Snapshot
+    public IndicatorState snapshot() {
+        var state = IndicatorState.newBuilder().setIndicator(indicator);
+        if (movingAverage != null) {
+            var window = movingAverage.window();
+            var indicatorWindow = IndicatorWindow.newBuilder()
+                    .setTime(window.getTime())
+                    .setValue(window.getValue());
+            for (var observation : window.getObservations()) {
+                indicatorWindow.addObservations(observation);
+            }
+            state.setWindow(indicatorWindow);
+        }
+        return state.build();
+    }
+
+    @SnapshotHandler
+    public void handleSnapshot(IndicatorState snapshot) {
+        if (snapshot.getIndicator().getIndicatorId().isEmpty()) {
+            return;
+        }
+        indicator = snapshot.getIndicator();
+        subscription(indicator).restore(new Window(snapshot.getWindow().getTime(),
+                snapshot.getWindow().getObservationsList().stream().mapToDouble(Double::doubleValue).toArray(),
+                snapshot.getWindow().getValue()));
+    }
+
+    /**
+     * Live events find their candles already applied to the moving average, replayed ones bring it forward.
+     */
+    @EventHandler
+    public void indicatorUpdated(IndicatorUpdated event) {
+        indicator = event.getIndicator();
+        var current = subscription(indicator);
+        for (int i = 0; i < event.getTimesCount(); i++) {
+            if (event.getTimes(i) > current.time()) {
+                current.valueAt(event.getTimes(i), event.getObservations(i));
+            }
+        }
+    }
+
+    private Subscription subscription(Indicator indicator) {
+        return subscription(indicator.getTestRunId(), indicator.getSymbol(), indicator.getInterval(),
+                indicator.getMaType(), indicator.getPeriod());
+    }
+
+    private Subscription subscription(String testRunId, String symbol, String interval, String maType, int period) {
+        if (movingAverage == null) {
+            movingAverage = indicators.subscribe(testRunId, symbol, interval, maType, period);
+        }
+        return movingAverage;
+    }
+}
@@ -0,0 +1,114 @@
+package com.akkasls.hackathon.entities;
+
+import com.akkaserverless.javasdk.EntityId;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.akkaserverless.javasdk.eventsourcedentity.Snapshot;
+import com.akkaserverless.javasdk.eventsourcedentity.SnapshotHandler;
+import com.akkasls.hackathon.GetPercentileCommand;
+import com.akkasls.hackathon.GetTopTradersCommand;
+import com.akkasls.hackathon.GetTraderRankCommand;
+import com.akkasls.hackathon.LeaderboardEntry;
+import com.akkasls.hackathon.LeaderboardState;
+import com.akkasls.hackathon.LeaderboardUpdated;
+import com.akkasls.hackathon.RankedTrader;
+import com.akkasls.hackathon.TopTraders;
+import com.akkasls.hackathon.UpdateLeaderboardCommand;
+import com.akkasls.hackathon.ranking.RankedIndex;
+import com.akkasls.hackathon.ranking.RankedIndex.Entry;
+import com.google.protobuf.Empty;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Traders of a test run ranked by equity, kept up to date by the traders as their orders are filled, so that the
+ * best strategies can be read without going through every balance of the run. Traders are only ranked once they
+ * filled an order, as that is when their equity is first known.
+ */
+@EventSourcedEntity(entityType = "leaderboards", snapshotEvery = 1000)
+@Slf4j
+public class LeaderboardEntity {
+
+    private final String entityId;
+
+    private final RankedIndex index = new RankedIndex();
+
+    public LeaderboardEntity(@EntityId String entityId) {
+        this.entityId = entityId;
+    }
+
+    public static double equity(double baseBalance, double quoteBalance, double exchangeRate) {
+        return baseBalance * exchangeRate + quoteBalance;
+    }
+
+    @CommandHandler
+    public Empty updateLeaderboard(UpdateLeaderboardCommand command, CommandContext ctx) {
+        var current = index.score(command.getTraderId());
+        if (current.isEmpty() || Double.compare(current.get(), command.getEquity()) != 0) {
+            ctx.emit(LeaderboardUpdated.newBuilder()
+                    .setTraderId(command.getTraderId())
+                    .setEquity(command.getEquity())
+                    .build());
+        }
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public TopTraders getTopTraders(GetTopTradersCommand command) {
+        var builder = TopTraders.newBuilder().setRankedTraders(index.size());
+        var rank = 1;
+        for (var entry : index.top(command.getN())) {
+            builder.addTraders(toRankedTrader(entry, rank++));
+        }
+        return builder.build();
+    }
+
+    @CommandHandler
+    public RankedTrader getTraderRank(GetTraderRankCommand command) {
+        return index.rank(command.getTraderId())
+                .map(rank -> toRankedTrader(new Entry(command.getTraderId(),
+                        index.score(command.getTraderId()).orElseThrow()), rank))
+                .orElse(RankedTrader.getDefaultInstance());
+    }
+
+    @CommandHandler
+    public RankedTrader getPercentile(GetPercentileCommand command, CommandContext ctx) {
+        if (command.getPercentile() < 0 || command.getPercentile() > 100) {
+            throw ctx.fail("Percentile must be in [0, 100]");
+        }
+        return index.atPercentile(command.getPercentile())
+                .map(entry -> toRankedTrader(entry, index.rank(entry.getTraderId()).orElseThrow()))
+                .orElse(RankedTrader.getDefaultInstance());
+    }
+
+    @Snapshot
+    public LeaderboardState snapshot() {
+        var builder = LeaderboardState.newBuilder().setTestRunId(entityId);
+        for (var entry : index.top(index.size())) {
+            builder.addEntries(LeaderboardEntry.newBuilder()
+                    .setTraderId(entry.getTraderId())
+                    .setEquity(entry.getScore()));
+        }
+        return builder.build();
+    }
+
+    @SnapshotHandler
+    public void handleSnapshot(LeaderboardState snapshot) {
+        snapshot.getEntriesList().forEach(entry -> index.put(entry.getTraderId(), entry.getEquity()));
+    }
+
+    @EventHandler
+    public void leaderboardUpdated(LeaderboardUpdated event) {
+        index.put(event.getTraderId(), event.getEquity());
+    }
+
+    private RankedTrader toRankedTrader(Entry entry, int rank) {
+        return RankedTrader.newBuilder()
+                .setTraderId(entry.getTraderId())
+                .setEquity(entry.getScore())
+                .setRank(rank)
+                .setPercentile(100.0 * (index.size() - rank + 1) / index.size())
+                .build();
+    }
+}
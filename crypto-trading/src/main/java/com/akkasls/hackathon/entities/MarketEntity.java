@@ -0,0 +1,290 @@
+package com.akkasls.hackathon.entities;
+
+import com.akkaserverless.javasdk.EntityId;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
+import com.akkaserverless.javasdk.eventsourcedentity.CommandHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventHandler;
+import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.akkaserverless.javasdk.eventsourcedentity.Snapshot;
+import com.akkaserverless.javasdk.eventsourcedentity.SnapshotHandler;
+import com.akkasls.hackathon.AddCandleCommand;
+import com.akkasls.hackathon.AddCandlesCommand;
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.CandlesAggregated;
+import com.akkasls.hackathon.GetMarketCommand;
+import com.akkasls.hackathon.IndicatorSpec;
+import com.akkasls.hackathon.MarketState;
+import com.akkasls.hackathon.PublishCandleCommand;
+import com.akkasls.hackathon.PublishCandlesCommand;
+import com.akkasls.hackathon.RegisterTraderCommand;
+import com.akkasls.hackathon.SubscribeTimeframeCommand;
+import com.akkasls.hackathon.Timeframe;
+import com.akkasls.hackathon.TimeframeSubscribed;
+import com.akkasls.hackathon.TraderRegistered;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.UpdateIndicatorCommand;
+import com.akkasls.hackathon.candles.CandleAggregator;
+import com.google.protobuf.Empty;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A market (test run, symbol and candle size) keeps track of the traders fed with its candles, so that a candle is
+ * published once and fanned out to every trader server side. Candles are also fed once to each distinct moving
+ * average of its traders, see {@link IndicatorEntity}.
+ * <p>
+ * Candles are fed at the {@link #BASE_INTERVAL} only: the market of a coarser interval subscribes to the base market
+ * of its symbol when its first trader registers, the base market then aggregates its candles and publishes them to
+ * the subscribed markets as they complete.
+ * <p>
+ * Candles are forwarded to traders and aggregated markets with synchronous effects: a publish only completes once
+ * every trader has processed its candles, so that publishing the next batch only once the previous one completed
+ * delivers candles in time order, and failed deliveries fail the publish rather than going unnoticed. Traders still
+ * skip candles not more recent than the last one they processed.
+ */
+@EventSourcedEntity(entityType = "markets", snapshotEvery = 100)
+@Slf4j
+public class MarketEntity {
+
+    public static final String BASE_INTERVAL = "1m";
+
+    private static final String TRADING_SERVICE = "com.akkasls.hackathon.CryptoTradingService";
+    private static final String INDICATOR_SERVICE = "com.akkasls.hackathon.IndicatorService";
+    private static final String MARKET_SERVICE = "com.akkasls.hackathon.MarketService";
+
+    private final String entityId;
+
+    private final Set<String> traderIds = new LinkedHashSet<>();
+    private final Set<IndicatorSpec> indicators = new LinkedHashSet<>();
+    private final Map<String, CandleAggregator> timeframes = new LinkedHashMap<>();
+    private String symbol;
+    private String interval;
+    private String testRunId;
+
+    public MarketEntity(@EntityId String entityId) {
+        this.entityId = entityId;
+    }
+
+    public static String marketId(TraderState trader) {
+        return marketId(trader.getTestRunId(), symbol(trader), trader.getInterval());
+    }
+
+    /**
+     * @param symbol i.e. BTC/EUR
+     */
+    public static String marketId(String testRunId, String symbol, String interval) {
+        return testRunId + "_" + symbol.replace("/", "") + "_" + interval;
+    }
+
+    /**
+     * @param symbol i.e. BTC/EUR
+     */
+    public static String baseMarketId(String testRunId, String symbol) {
+        return marketId(testRunId, symbol, BASE_INTERVAL);
+    }
+
+    /**
+     * @return i.e. BTC/EUR
+     */
+    public static String symbol(TraderState trader) {
+        return trader.getBaseAsset() + "/" + trader.getQuoteAsset();
+    }
+
+    public static List<IndicatorSpec> indicators(TraderState trader) {
+        return List.of(
+                IndicatorSpec.newBuilder().setMaType(trader.getMaType()).setPeriod(trader.getShortMaPeriod()).build(),
+                IndicatorSpec.newBuilder().setMaType(trader.getMaType()).setPeriod(trader.getLongMaPeriod()).build()
+        );
+    }
+
+    @CommandHandler
+    public Empty registerTrader(RegisterTraderCommand command, CommandContext ctx) {
+        if (!traderIds.contains(command.getTraderId())) {
+            ctx.emit(TraderRegistered.newBuilder()
+                    .setMarketId(entityId)
+                    .setTraderId(command.getTraderId())
+                    .setSymbol(command.getSymbol())
+                    .setInterval(command.getInterval())
+                    .addAllIndicators(command.getIndicatorsList())
+                    .setTestRunId(command.getTestRunId())
+                    .build());
+            if (!BASE_INTERVAL.equals(command.getInterval())) {
+                var subscribeTimeframe = ctx.serviceCallFactory()
+                        .lookup(MARKET_SERVICE, "SubscribeTimeframe", SubscribeTimeframeCommand.class);
+                ctx.effect(subscribeTimeframe.createCall(SubscribeTimeframeCommand.newBuilder()
+                        .setMarketId(baseMarketId(command.getTestRunId(), command.getSymbol()))
+                        .setSymbol(command.getSymbol())
+                        .setInterval(command.getInterval())
+                        .setTestRunId(command.getTestRunId())
+                        .build()), true);
+            }
+        }
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public Empty subscribeTimeframe(SubscribeTimeframeCommand command, CommandContext ctx) {
+        if (!timeframes.containsKey(command.getInterval())) {
+            try {
+                CandleAggregator.intervalMillis(command.getInterval());
+            } catch (IllegalArgumentException e) {
+                throw ctx.fail(e.getMessage());
+            }
+            ctx.emit(TimeframeSubscribed.newBuilder()
+                    .setMarketId(entityId)
+                    .setSymbol(command.getSymbol())
+                    .setInterval(command.getInterval())
+                    .setTestRunId(command.getTestRunId())
+                    .build());
+        }
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public Empty publishCandle(PublishCandleCommand command, CommandContext ctx) {
+        var addCandle = ctx.serviceCallFactory().lookup(TRADING_SERVICE, "AddCandle", AddCandleCommand.class);
+        traderIds.forEach(traderId -> ctx.effect(addCandle.createCall(AddCandleCommand.newBuilder()
+                .setTraderId(traderId)
+                .setCandle(command.getCandle())
+                .build()), true));
+        updateIndicators(List.of(command.getCandle()), ctx);
+        aggregateCandles(List.of(command.getCandle()), false, ctx);
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public Empty publishCandles(PublishCandlesCommand command, CommandContext ctx) {
+        var addCandles = ctx.serviceCallFactory().lookup(TRADING_SERVICE, "AddCandles", AddCandlesCommand.class);
+        traderIds.forEach(traderId -> ctx.effect(addCandles.createCall(AddCandlesCommand.newBuilder()
+                .setTraderId(traderId)
+                .addAllCandles(command.getCandlesList())
+                .setSummary(command.getSummary())
+                .build()), true));
+        updateIndicators(command.getCandlesList(), ctx);
+        aggregateCandles(command.getCandlesList(), command.getSummary(), ctx);
+        return Empty.getDefaultInstance();
+    }
+
+    @CommandHandler
+    public MarketState getMarket(GetMarketCommand command) {
+        return snapshot();
+    }
+
+    @EventHandler
+    public void traderRegistered(TraderRegistered event) {
+        traderIds.add(event.getTraderId());
+        indicators.addAll(event.getIndicatorsList());
+        symbol = event.getSymbol();
+        interval = event.getInterval();
+        testRunId = event.getTestRunId();
+    }
+
+    @EventHandler
+    public void timeframeSubscribed(TimeframeSubscribed event) {
+        timeframes.put(event.getInterval(), new CandleAggregator(event.getInterval()));
+        symbol = event.getSymbol();
+        testRunId = event.getTestRunId();
+    }
+
+    @EventHandler
+    public void candlesAggregated(CandlesAggregated event) {
+        event.getTimeframesList().forEach(this::restore);
+    }
+
+    @Snapshot
+    public MarketState snapshot() {
+        return MarketState.newBuilder()
+                .setMarketId(entityId)
+                .addAllTraderIds(traderIds)
+                .addAllIndicators(indicators)
+                .addAllTimeframes(timeframes(timeframes))
+                .setSymbol(symbol == null ? "" : symbol)
+                .setInterval(interval == null ? "" : interval)
+                .setTestRunId(testRunId == null ? "" : testRunId)
+                .build();
+    }
+
+    @SnapshotHandler
+    public void handleSnapshot(MarketState snapshot) {
+        traderIds.clear();
+        traderIds.addAll(snapshot.getTraderIdsList());
+        indicators.clear();
+        indicators.addAll(snapshot.getIndicatorsList());
+        timeframes.clear();
+        snapshot.getTimeframesList().forEach(this::restore);
+        symbol = snapshot.getSymbol().isEmpty() ? null : snapshot.getSymbol();
+        interval = snapshot.getInterval().isEmpty() ? null : snapshot.getInterval();
+        testRunId = snapshot.getTestRunId().isEmpty() ? null : snapshot.getTestRunId();
+    }
+
+    /**
+     * Publishes the aggregated candles completed by the given ones to the markets of their interval. The pending
+     * candles are persisted on every publish, so that aggregation resumes where it was after a restart.
+     */
+    private void aggregateCandles(List<CandleStick> candles, boolean summary, CommandContext ctx) {
+        if (timeframes.isEmpty()) {
+            return;
+        }
+        var publishCandles = ctx.serviceCallFactory()
+                .lookup(MARKET_SERVICE, "PublishCandles", PublishCandlesCommand.class);
+        var aggregated = new LinkedHashMap<String, CandleAggregator>();
+        timeframes.forEach((timeframe, aggregator) -> {
+            var preview = new CandleAggregator(timeframe, aggregator.pending().orElse(null), aggregator.lastTime());
+            var completed = preview.add(candles);
+            if (!completed.isEmpty()) {
+                ctx.effect(publishCandles.createCall(PublishCandlesCommand.newBuilder()
+                        .setMarketId(marketId(testRunId, symbol, timeframe))
+                        .addAllCandles(completed)
+                        .setSummary(summary)
+                        .build()), true);
+            }
+            aggregated.put(timeframe, preview);
+        });
+        ctx.emit(CandlesAggregated.newBuilder()
+                .setMarketId(entityId)
+                .addAllTimeframes(timeframes(aggregated))
+                .build());
+    }
+
+    private static List<Timeframe> timeframes(Map<String, CandleAggregator> timeframes) {
+        return timeframes.entrySet().stream()
+                .map(timeframe -> {
+                    var builder = Timeframe.newBuilder().setInterval(timeframe.getKey());
+                    timeframe.getValue().pending().ifPresent(builder::setPending);
+                    if (timeframe.getValue().lastTime() != Long.MIN_VALUE) {
+                        builder.setLastTime(timeframe.getValue().lastTime());
+                    }
+                    return builder.build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private void restore(Timeframe timeframe) {
+        timeframes.put(timeframe.getInterval(), new CandleAggregator(timeframe.getInterval(),
+                timeframe.hasPending() ? timeframe.getPending() : null,
+                timeframe.getLastTime() == 0 ? Long.MIN_VALUE : timeframe.getLastTime()));
+    }
+
+    private void updateIndicators(List<CandleStick> candles, CommandContext ctx) {
+        if (indicators.isEmpty()) {
+            return;
+        }
+        var updateIndicator = ctx.serviceCallFactory()
+                .lookup(INDICATOR_SERVICE, "UpdateIndicator", UpdateIndicatorCommand.class);
+        indicators.forEach(spec -> ctx.effect(updateIndicator.createCall(UpdateIndicatorCommand.newBuilder()
+                .setIndicatorId(IndicatorEntity.indicatorId(testRunId, symbol, interval, spec.getMaType(),
+                        spec.getPeriod()))
+                .setSymbol(symbol)
+                .setInterval(interval)
+                .setTestRunId(testRunId)
+                .setSpec(spec)
+                .addAllCandles(candles)
+                .build())));
+    }
+}
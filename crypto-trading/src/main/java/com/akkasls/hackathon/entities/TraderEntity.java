@@ -5,35 +5,66 @@ import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
 import com.akkaserverless.javasdk.eventsourcedentity.CommandHandler;
 import com.akkaserverless.javasdk.eventsourcedentity.EventHandler;
 import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.akkaserverless.javasdk.eventsourcedentity.Snapshot;
+import com.akkaserverless.javasdk.eventsourcedentity.SnapshotHandler;
 import com.akkasls.hackathon.AddCandleCommand;
+import com.akkasls.hackathon.AddCandlesCommand;
 import com.akkasls.hackathon.CandleStick;
 import com.akkasls.hackathon.GetTraderCommand;
+import com.akkasls.hackathon.IndicatorWindow;
 import com.akkasls.hackathon.MovingAverageUpdated;
 import com.akkasls.hackathon.NewTraderCommand;
 import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.RegisterTraderCommand;
 import com.akkasls.hackathon.TraderAdded;
 import com.akkasls.hackathon.TraderState;
-import com.akkasls.hackathon.indicators.MovingAverages;
-import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+import com.akkasls.hackathon.UpdateLeaderboardCommand;
+import com.akkasls.hackathon.candles.CandleAggregator;
+import com.akkasls.hackathon.indicators.IndicatorRegistry;
+import com.akkasls.hackathon.indicators.IndicatorRegistry.Subscription;
+import com.akkasls.hackathon.indicators.IndicatorRegistry.Window;
+import com.akkasls.hackathon.indicators.Indicators;
+import com.akkasls.hackathon.metrics.Metrics;
+import com.akkasls.hackathon.metrics.Metrics.Latency;
+import com.akkasls.hackathon.metrics.SampledLogger;
+import com.akkasls.hackathon.startup.Startup;
 import com.google.protobuf.Empty;
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Stream;
 
-@EventSourcedEntity(entityType = "traders")
+@EventSourcedEntity(entityType = "traders", snapshotEvery = 100)
 @Slf4j
 public class TraderEntity {
 
+    private static final LongAdder ORDERS_REJECTED = Metrics.counter("orders_rejected_total");
+    private static final SampledLogger SAMPLED_LOG = new SampledLogger(log, Duration.ofSeconds(10));
+
     private final String entityId;
 
     private Optional<TraderState> traderState = Optional.empty();
 
-    // auxiliary stateful deps – not part of the state
-    private MovingAverage shortMa;
-    private MovingAverage longMa;
+    // auxiliary stateful deps – shared by the traders of a test run on a market, their windows are in snapshots
+    private final IndicatorRegistry indicators = IndicatorRegistry.shared();
+    private Subscription shortMa;
+    private Subscription longMa;
+    private long maUpdatesEveryMillis;
+    // candles each moving average was updated with since its last event, carried on its next one
+    private final MovingAverageUpdated.Builder shortMaSkipped = MovingAverageUpdated.newBuilder();
+    private final MovingAverageUpdated.Builder longMaSkipped = MovingAverageUpdated.newBuilder();
+    private long lastCandleTime = Long.MIN_VALUE;
+
+    // per market metrics
+    private LongAdder candlesProcessed;
+    private LongAdder candlesOutOfOrder;
+    private LongAdder movingAveragesUpdated;
+    private LongAdder ordersPlaced;
+    private Latency processCandlesLatency;
 
     public TraderEntity(@EntityId String entityId) {
         this.entityId = entityId;
@@ -41,10 +72,24 @@ public class TraderEntity {
 
     @CommandHandler
     public TraderState newTrader(NewTraderCommand command, CommandContext ctx) {
+        if (!Indicators.isMovingAverage(command.getTrader().getMaType())) {
+            throw ctx.fail("Unsupported moving average type: " + command.getTrader().getMaType()
+                    + ", expected one of " + Indicators.movingAverageTypes());
+        }
         var event = TraderAdded.newBuilder()
                 .setTrader(command.getTrader().toBuilder().setTraderId(this.entityId))
                 .build();
         ctx.emit(event);
+        var registerTrader = ctx.serviceCallFactory()
+                .lookup("com.akkasls.hackathon.MarketService", "RegisterTrader", RegisterTraderCommand.class);
+        ctx.effect(registerTrader.createCall(RegisterTraderCommand.newBuilder()
+                .setMarketId(MarketEntity.marketId(event.getTrader()))
+                .setTraderId(this.entityId)
+                .setSymbol(MarketEntity.symbol(event.getTrader()))
+                .setInterval(event.getTrader().getInterval())
+                .addAllIndicators(MarketEntity.indicators(event.getTrader()))
+                .setTestRunId(event.getTrader().getTestRunId())
+                .build()), true);
         return command.getTrader();
     }
 
@@ -55,31 +100,56 @@ public class TraderEntity {
 
     @CommandHandler
     public Empty addCandle(AddCandleCommand command, CommandContext ctx) {
-        var maybeShortMa = updatedMovingAverage(shortMa, command.getCandle());
-        var maybeLongMa = updatedMovingAverage(longMa, command.getCandle());
+        processCandles(List.of(command.getCandle()), false, ctx);
+        return Empty.getDefaultInstance();
+    }
 
-        var maybeOrderPlaced = maybeShortMa.flatMap(shortMa ->
-                maybeLongMa.flatMap(longMa ->
-                        placeOrder(command.getCandle(), shortMa.getValue(), longMa.getValue())
-                ));
+    @CommandHandler
+    public Empty addCandles(AddCandlesCommand command, CommandContext ctx) {
+        processCandles(command.getCandlesList(), command.getSummary(), ctx);
+        return Empty.getDefaultInstance();
+    }
 
-        Stream.of(maybeShortMa, maybeLongMa, maybeOrderPlaced).flatMap(Optional::stream)
-                .forEach(ctx::emit);
+    @Snapshot
+    public TraderState snapshot() {
+        return traderState.map(state -> state.toBuilder()
+                        .setShortMaWindow(toIndicatorWindow(shortMa.window()))
+                        .setLongMaWindow(toIndicatorWindow(longMa.window()))
+                        .setLastCandleTime(lastCandleTime)
+                        .build())
+                .orElse(TraderState.getDefaultInstance());
+    }
 
-        return Empty.getDefaultInstance();
+    @SnapshotHandler
+    public void handleSnapshot(TraderState snapshot) {
+        if (snapshot.getTraderId().isEmpty()) {
+            return;
+        }
+        initialise(snapshot.toBuilder().clearShortMaWindow().clearLongMaWindow().clearLastCandleTime().build());
+        shortMa.restore(fromIndicatorWindow(snapshot.getShortMaWindow()));
+        longMa.restore(fromIndicatorWindow(snapshot.getLongMaWindow()));
+        lastCandleTime = snapshot.getLastCandleTime();
     }
 
     @EventHandler
     public void traderAdded(TraderAdded event) {
-        var trader = event.getTrader();
-        var maType = trader.getMaType();
-        traderState = Optional.of(trader);
-        shortMa = movingAverageFor(maType).apply(trader.getShortMaPeriod());
-        longMa = movingAverageFor(maType).apply(trader.getLongMaPeriod());
+        initialise(event.getTrader());
     }
 
     @EventHandler
     public void movingAverageUpdated(MovingAverageUpdated event) {
+        var currentMa = event.getPeriod() == shortMa.period ? shortMa : longMa;
+        // no-op for live events, whose candles were already applied, when replaying this brings the window forward
+        // with the candles not emitted on their own and then the one of the event
+        for (int i = 0; i < event.getSkippedTimesCount(); i++) {
+            if (event.getSkippedTimes(i) > currentMa.time()) {
+                currentMa.valueAt(event.getSkippedTimes(i), event.getSkippedObservations(i));
+            }
+        }
+        if (event.getObservation() > 0 && event.getTime() > currentMa.time()) {
+            currentMa.valueAt(event.getTime(), event.getObservation());
+        }
+        lastCandleTime = Math.max(lastCandleTime, event.getTime());
         traderState = traderState.map(state -> {
             var stateBuilder = state.toBuilder();
             if (event.getPeriod() == shortMa.period) {
@@ -93,6 +163,7 @@ public class TraderEntity {
 
     @EventHandler
     public void orderPlaced(OrderPlaced event) {
+        lastCandleTime = Math.max(lastCandleTime, event.getTime());
         traderState.ifPresent(state -> {
             switch (event.getType()) {
                 case "BUY":
@@ -102,30 +173,221 @@ public class TraderEntity {
                     traderState = sell(event.getQuantity(), event.getExchangeRate());
                     break;
                 default:
-                    log.info("nothing to do here! Just spending some serverless credits :)");
+                    SAMPLED_LOG.info("nothing to do here! Just spending some serverless credits :)");
             }
         });
     }
 
+    private void initialise(TraderState trader) {
+        var maType = trader.getMaType();
+        var symbol = trader.getBaseAsset() + "/" + trader.getQuoteAsset();
+        traderState = Optional.of(trader);
+        shortMa = indicators.subscribe(trader.getTestRunId(), symbol, trader.getInterval(), maType,
+                trader.getShortMaPeriod());
+        longMa = indicators.subscribe(trader.getTestRunId(), symbol, trader.getInterval(), maType,
+                trader.getLongMaPeriod());
+        maUpdatesEveryMillis = trader.getMaUpdatesEvery() > 1
+                ? trader.getMaUpdatesEvery() * CandleAggregator.intervalMillis(trader.getInterval())
+                : 0;
+
+        // labelled by market regardless of the test run, to keep the number of series bounded
+        var market = trader.getBaseAsset() + trader.getQuoteAsset() + "_" + trader.getInterval();
+        candlesProcessed = Metrics.counter("candles_processed_total", "market", market);
+        candlesOutOfOrder = Metrics.counter("candles_out_of_order_total", "market", market);
+        movingAveragesUpdated = Metrics.counter("moving_averages_updated_total", "market", market);
+        ordersPlaced = Metrics.counter("orders_placed_total", "market", market);
+        processCandlesLatency = Metrics.latency("process_candles", "market", market);
+    }
+
+    /**
+     * Runs the candles through the moving averages in order, emitting every order placed along the way. In summary
+     * mode only the last value of each moving average is emitted, once the whole batch is processed, otherwise they
+     * are emitted as configured by the trader, see {@link #shouldEmitMovingAverages}. Candles not more recent than
+     * the last one processed are skipped.
+     */
+    private void processCandles(List<CandleStick> received, boolean summary, CommandContext ctx) {
+        if (traderState.isEmpty()) {
+            return;
+        }
+        var start = System.nanoTime();
+        var candles = inOrder(received);
+        var lastShortMa = Optional.<MovingAverageUpdated>empty();
+        var lastLongMa = Optional.<MovingAverageUpdated>empty();
+        var lastOrderPlaced = Optional.<OrderPlaced>empty();
+        for (int i = 0; i < candles.size(); i++) {
+            var candle = candles.get(i);
+            var currentShortMa = lastShortMa.map(MovingAverageUpdated::getValue)
+                    .orElseGet(() -> traderState.get().getShortMaValue());
+            var currentLongMa = lastLongMa.map(MovingAverageUpdated::getValue)
+                    .orElseGet(() -> traderState.get().getLongMaValue());
+            var maybeShortMa = updatedMovingAverage(shortMa, candle);
+            var maybeLongMa = updatedMovingAverage(longMa, candle);
 
-    private Function<Integer, MovingAverage> movingAverageFor(String maType) {
-        switch (maType) {
-            case "simple":
-                return MovingAverages::simple;
-            case "exponential":
-                return MovingAverages::exponential;
-            default:
-                throw new IllegalArgumentException("Unsupported Moving Average type: " + maType);
+            var maybeOrderPlaced = maybeShortMa.flatMap(shortMa ->
+                    maybeLongMa.flatMap(longMa ->
+                            placeOrder(candle, currentShortMa, currentLongMa, shortMa.getValue(), longMa.getValue())
+                    ));
+
+            if (!summary && shouldEmitMovingAverages(maUpdatesEveryMillis, candle, i == candles.size() - 1,
+                    maybeOrderPlaced.isPresent(), currentShortMa - currentLongMa, maybeShortMa, maybeLongMa)) {
+                Stream.of(emitted(maybeShortMa, candle, shortMaSkipped),
+                                emitted(maybeLongMa, candle, longMaSkipped),
+                                maybeOrderPlaced)
+                        .flatMap(Optional::stream)
+                        .forEach(event -> emit(ctx, event));
+            } else {
+                skipped(candle, shortMaSkipped);
+                skipped(candle, longMaSkipped);
+                maybeOrderPlaced.ifPresent(event -> emit(ctx, event));
+            }
+            if (maybeShortMa.isPresent()) lastShortMa = maybeShortMa;
+            if (maybeLongMa.isPresent()) lastLongMa = maybeLongMa;
+            if (maybeOrderPlaced.isPresent()) lastOrderPlaced = maybeOrderPlaced;
+            lastCandleTime = candle.getTime();
         }
+
+        if (summary) {
+            Stream.of(lastShortMa.map(event -> withSkipped(event, shortMaSkipped)),
+                            lastLongMa.map(event -> withSkipped(event, longMaSkipped)))
+                    .flatMap(Optional::stream)
+                    .forEach(event -> emit(ctx, event));
+        }
+        lastOrderPlaced.ifPresent(order -> updateLeaderboard(order, ctx));
+        candlesProcessed.add(candles.size());
+        Startup.candleProcessed();
+        processCandlesLatency.recordSince(start);
+    }
+
+    /**
+     * @return the candles more recent than the last one processed, in time order.
+     */
+    private List<CandleStick> inOrder(List<CandleStick> candles) {
+        var last = lastCandleTime;
+        for (var candle : candles) {
+            if (candle.getTime() <= last) {
+                var inOrder = new ArrayList<CandleStick>(candles.size());
+                var lastInOrder = lastCandleTime;
+                for (var next : candles) {
+                    if (next.getTime() > lastInOrder) {
+                        inOrder.add(next);
+                        lastInOrder = next.getTime();
+                    }
+                }
+                candlesOutOfOrder.add(candles.size() - inOrder.size());
+                SAMPLED_LOG.warn("skipped {} candles of {} not after the last one processed at {}",
+                        candles.size() - inOrder.size(), entityId, lastCandleTime);
+                return inOrder;
+            }
+            last = candle.getTime();
+        }
+        return candles;
     }
 
-    private Optional<MovingAverageUpdated> updatedMovingAverage(MovingAverage currentMa, CandleStick candle) {
-        return traderState.flatMap(state -> currentMa.updateWith(BigDecimal.valueOf(candle.getClosingPrice()))
-                .value()
-                .map(toMovingAverageUpdated(currentMa.period, candle.getTime(), state.getMaType()))
-        );
+    /**
+     * Moving averages skipped here are still used to decide orders within the command, only their events are
+     * dropped: the last candle of a command is always emitted, so the state is the same once the command is
+     * processed, and the candles skipped are carried on the next event of each moving average, so that replaying
+     * the events rebuilds the same windows. Candles on the schedule are picked by their close time rather than
+     * counted, so that they do not depend on restarts.
+     *
+     * @param maUpdatesEveryMillis 0 to emit every candle.
+     * @param currentSpread short minus long moving average before the candle, its sign changes on crossovers.
+     */
+    static boolean shouldEmitMovingAverages(long maUpdatesEveryMillis, CandleStick candle, boolean last,
+                                            boolean orderPlaced, double currentSpread,
+                                            Optional<MovingAverageUpdated> shortMa,
+                                            Optional<MovingAverageUpdated> longMa) {
+        if (maUpdatesEveryMillis == 0 || last || orderPlaced) {
+            return true;
+        }
+        if (shortMa.isPresent() && longMa.isPresent()
+                && Math.signum(shortMa.get().getValue() - longMa.get().getValue()) != Math.signum(currentSpread)) {
+            return true;
+        }
+        return Math.floorMod(candle.getTime(), maUpdatesEveryMillis) == maUpdatesEveryMillis - 1;
     }
 
+    /**
+     * @return the event of the moving average updated with the candle, carrying the candles skipped before it, none
+     * if the moving average is not ready yet, in which case the candle is skipped too.
+     */
+    private static Optional<MovingAverageUpdated> emitted(Optional<MovingAverageUpdated> movingAverage,
+                                                          CandleStick candle, MovingAverageUpdated.Builder skipped) {
+        if (movingAverage.isEmpty()) {
+            skipped(candle, skipped);
+        }
+        return movingAverage.map(event -> withSkipped(event, skipped));
+    }
+
+    private static void skipped(CandleStick candle, MovingAverageUpdated.Builder skipped) {
+        skipped.addSkippedTimes(candle.getTime()).addSkippedObservations(candle.getClosingPrice());
+    }
+
+    /**
+     * Moves the candles skipped before the event to it, the one of the event itself is dropped.
+     */
+    private static MovingAverageUpdated withSkipped(MovingAverageUpdated event, MovingAverageUpdated.Builder skipped) {
+        var withSkipped = event.toBuilder();
+        var remaining = MovingAverageUpdated.newBuilder();
+        for (int i = 0; i < skipped.getSkippedTimesCount(); i++) {
+            var time = skipped.getSkippedTimes(i);
+            if (time != event.getTime()) {
+                (time < event.getTime() ? withSkipped : remaining)
+                        .addSkippedTimes(time)
+                        .addSkippedObservations(skipped.getSkippedObservations(i));
+            }
+        }
+        skipped.clear().mergeFrom(remaining.build());
+        return withSkipped.build();
+    }
+
+    /**
+     * Sends the equity of the trader, valued at the rate of its last order, to the leaderboard of its test run. Sent
+     * once per command, however many orders the candles triggered.
+     */
+    private void updateLeaderboard(OrderPlaced lastOrder, CommandContext ctx) {
+        traderState.ifPresent(state -> {
+            var updateLeaderboard = ctx.serviceCallFactory()
+                    .lookup("com.akkasls.hackathon.LeaderboardService", "UpdateLeaderboard",
+                            UpdateLeaderboardCommand.class);
+            ctx.effect(updateLeaderboard.createCall(UpdateLeaderboardCommand.newBuilder()
+                    .setTestRunId(state.getTestRunId())
+                    .setTraderId(this.entityId)
+                    .setEquity(LeaderboardEntity.equity(state.getBaseBalance(), state.getQuoteBalance(),
+                            lastOrder.getExchangeRate()))
+                    .build()));
+        });
+    }
+
+    private void emit(CommandContext ctx, Object event) {
+        if (event instanceof OrderPlaced) {
+            var rejectedOrders = traderState.map(TraderState::getRejectedOrders).orElse(0);
+            ctx.emit(event);
+            ordersPlaced.increment();
+            // counted here rather than when applying the event, which also happens on every replay
+            if (traderState.map(TraderState::getRejectedOrders).orElse(0) > rejectedOrders) {
+                ORDERS_REJECTED.increment();
+                SAMPLED_LOG.warn("not enough funds for {} to {}", entityId, ((OrderPlaced) event).getType());
+            }
+        } else {
+            ctx.emit(event);
+            movingAveragesUpdated.increment();
+        }
+    }
+
+    private Optional<MovingAverageUpdated> updatedMovingAverage(Subscription currentMa, CandleStick candle) {
+        return traderState.flatMap(state -> {
+            var value = currentMa.valueAt(candle.getTime(), candle.getClosingPrice());
+            return Double.isNaN(value)
+                    ? Optional.empty()
+                    : Optional.of(toMovingAverageUpdated(currentMa.period, value, candle, state.getMaType()));
+        });
+    }
+
+    /**
+     * Applies a buy order to the balances, counting it as rejected when quote funds are short. Free of side effects,
+     * as orders are also applied on replays, by the view and by backtests.
+     */
     public static TraderState buy(TraderState state, double quantity, double exchangeRate) {
         if (state.getQuoteBalance() >= exchangeRate * quantity) {
             return state.toBuilder()
@@ -133,11 +395,13 @@ public class TraderEntity {
                     .setQuoteBalance(state.getQuoteBalance() - exchangeRate * quantity)
                     .build();
         } else {
-            log.warn("not enough {} funds for entity!", state.getQuoteAsset());
-            return state;
+            return rejected(state);
         }
     }
 
+    /**
+     * Applies a sell order to the balances, see {@link #buy(TraderState, double, double)}.
+     */
     public static TraderState sell(TraderState state, double quantity, double exchangeRate) {
         if (state.getBaseBalance() >= quantity) {
             return state.toBuilder()
@@ -145,11 +409,14 @@ public class TraderEntity {
                     .setQuoteBalance(state.getQuoteBalance() + exchangeRate * quantity)
                     .build();
         } else {
-            log.warn("not enough {} funds for entity!", state.getBaseAsset());
-            return state;
+            return rejected(state);
         }
     }
 
+    private static TraderState rejected(TraderState state) {
+        return state.toBuilder().setRejectedOrders(state.getRejectedOrders() + 1).build();
+    }
+
     private Optional<TraderState> buy(double quantity, double exchangeRate) {
         return traderState.map(state -> buy(state, quantity, exchangeRate));
     }
@@ -158,49 +425,73 @@ public class TraderEntity {
         return traderState.map(state -> sell(state, quantity, exchangeRate));
     }
 
-    private Optional<OrderPlaced> placeOrder(CandleStick candle, double updatedShortMa, double updatedLongMa) {
-        // if a new order should be placed then return it.
-        return traderState
-                .filter(s -> s.getShortMaValue() > 0 && s.getLongMaValue() > 0)
-                .flatMap(state -> {
-                    var currentDiff = diff(state.getShortMaValue(), state.getLongMaValue());
-                    var updatedDiff = diff(updatedShortMa, updatedLongMa);
-                    var orderType = updatedDiff > 0 ? "BUY" : "SELL";
-                    var slope = Math.abs(diff(updatedDiff, currentDiff));
-                    double quantity = 10 * slope;
-                    if (slope > state.getThreshold() && haveEnoughFunds(orderType, quantity)) {
-                        return Optional.of(OrderPlaced.newBuilder()
-                                .setTraderId(entityId)
-                                .setTime(candle.getTime())
-                                .setExchangeRate(candle.getClosingPrice())
-                                .setQuantity(quantity)
-                                .setType(orderType)
-                                .build());
-                    }
-                    return Optional.empty();
-                });
-
+    private Optional<OrderPlaced> placeOrder(CandleStick candle, double currentShortMa, double currentLongMa,
+                                             double updatedShortMa, double updatedLongMa) {
+        return traderState.flatMap(state -> placeOrder(state, candle.getTime(), candle.getClosingPrice(),
+                currentShortMa, currentLongMa, updatedShortMa, updatedLongMa));
     }
 
-    private boolean haveEnoughFunds(String orderType, double orderQuantity) {
+    /**
+     * Decides whether the trader should place a new order given the moving averages before and after a candle.
+     *
+     * @return the order to be placed, if any.
+     */
+    public static Optional<OrderPlaced> placeOrder(TraderState state, long time, double closingPrice,
+                                                   double currentShortMa, double currentLongMa,
+                                                   double updatedShortMa, double updatedLongMa) {
+        if (currentShortMa <= 0 || currentLongMa <= 0) {
+            return Optional.empty();
+        }
+        var currentDiff = diff(currentShortMa, currentLongMa);
+        var updatedDiff = diff(updatedShortMa, updatedLongMa);
+        var orderType = updatedDiff > 0 ? "BUY" : "SELL";
+        var slope = Math.abs(diff(updatedDiff, currentDiff));
+        double quantity = 10 * slope;
+        if (slope > state.getThreshold() && haveEnoughFunds(state, orderType, quantity)) {
+            return Optional.of(OrderPlaced.newBuilder()
+                    .setTraderId(state.getTraderId())
+                    .setTime(time)
+                    .setExchangeRate(closingPrice)
+                    .setQuantity(quantity)
+                    .setType(orderType)
+                    .build());
+        }
+        return Optional.empty();
+    }
 
-        Function<TraderState, Double> getBalance =
-                orderType.equals("BUY") ? TraderState::getQuoteBalance : TraderState::getBaseBalance;
-        return traderState.map(getBalance).stream().anyMatch(balance -> balance > orderQuantity);
+    private static boolean haveEnoughFunds(TraderState state, String orderType, double orderQuantity) {
+        var balance = orderType.equals("BUY") ? state.getQuoteBalance() : state.getBaseBalance();
+        return balance > orderQuantity;
     }
 
-    private double diff(double a, double b) {
+    private static double diff(double a, double b) {
         return (a - b) / a;
     }
 
-    private static Function<BigDecimal, MovingAverageUpdated> toMovingAverageUpdated(int period, long time,
-                                                                                     String type) {
-        return value -> MovingAverageUpdated.newBuilder()
+    private static MovingAverageUpdated toMovingAverageUpdated(int period, double value, CandleStick candle,
+                                                               String type) {
+        return MovingAverageUpdated.newBuilder()
                 .setPeriod(period)
-                .setValue(value.doubleValue())
-                .setTime(time)
+                .setValue(value)
+                .setTime(candle.getTime())
+                .setObservation(candle.getClosingPrice())
                 .setType(type)
                 .build();
     }
 
+    private static IndicatorWindow toIndicatorWindow(Window window) {
+        var builder = IndicatorWindow.newBuilder()
+                .setTime(window.getTime())
+                .setValue(window.getValue());
+        for (var observation : window.getObservations()) {
+            builder.addObservations(observation);
+        }
+        return builder.build();
+    }
+
+    private static Window fromIndicatorWindow(IndicatorWindow window) {
+        var observations = window.getObservationsList().stream().mapToDouble(Double::doubleValue).toArray();
+        return new Window(window.getTime(), observations, window.getValue());
+    }
+
 }
@@ -0,0 +1,124 @@
+package com.akkasls.hackathon.indicators;
+
+import lombok.Value;
+
+/**
+ * Simple moving average of the last {@link #period} observations, its value, surrounded by bands two standard
+ * deviations away. The rolling sums are taken relative to a shift close to the mean, which keeps the variance from
+ * cancelling out on prices far from zero, and are recomputed from the ring buffer every time it wraps around.
+ */
+public class BollingerBands implements TechnicalIndicator<BollingerBands.State> {
+
+    private static final double WIDTH = 2;
+
+    private final int period;
+    private final double[] observations;
+    private int next;
+    private int size;
+    private double shift = Double.NaN;
+    private double sum;
+    private double sumOfSquares;
+
+    public BollingerBands(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Bollinger bands period must be positive: " + period);
+        }
+        this.period = period;
+        this.observations = new double[period];
+    }
+
+    @Override
+    public int period() {
+        return period;
+    }
+
+    @Override
+    public boolean isReady() {
+        return size == period;
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? shift + sum / period : Double.NaN;
+    }
+
+    public double upper() {
+        return getValue() + WIDTH * standardDeviation();
+    }
+
+    public double lower() {
+        return getValue() - WIDTH * standardDeviation();
+    }
+
+    public double standardDeviation() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        var mean = sum / period;
+        return Math.sqrt(Math.max(0, sumOfSquares / period - mean * mean));
+    }
+
+    @Override
+    public BollingerBands updateWith(double observation) {
+        if (Double.isNaN(shift)) {
+            shift = observation;
+        }
+        if (isReady()) {
+            var expiring = observations[next] - shift;
+            sum -= expiring;
+            sumOfSquares -= expiring * expiring;
+        } else {
+            size++;
+        }
+        observations[next] = observation;
+        var shifted = observation - shift;
+        sum += shifted;
+        sumOfSquares += shifted * shifted;
+        if (++next == period) {
+            next = 0;
+            resum();
+        }
+        return this;
+    }
+
+    @Override
+    public State state() {
+        var window = new double[size];
+        var oldest = isReady() ? next : 0;
+        for (int i = 0; i < size; i++) {
+            window[i] = observations[(oldest + i) % period];
+        }
+        return new State(window);
+    }
+
+    @Override
+    public BollingerBands restore(State state) {
+        next = 0;
+        size = 0;
+        shift = Double.NaN;
+        sum = 0;
+        sumOfSquares = 0;
+        var window = state.getObservations();
+        for (int i = Math.max(0, window.length - period); i < window.length; i++) {
+            updateWith(window[i]);
+        }
+        return this;
+    }
+
+    private void resum() {
+        shift += sum / size;
+        sum = 0;
+        sumOfSquares = 0;
+        for (int i = 0; i < size; i++) {
+            var shifted = observations[i] - shift;
+            sum += shifted;
+            sumOfSquares += shifted * shifted;
+        }
+    }
+
+    @Value
+    public static class State {
+        // the last observations, up to the period, oldest first
+        double[] observations;
+    }
+}
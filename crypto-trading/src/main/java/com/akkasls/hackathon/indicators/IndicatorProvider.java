@@ -0,0 +1,18 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+
+/**
+ * Service provider of a moving average type, discovered through {@link java.util.ServiceLoader} from
+ * {@code META-INF/services/com.akkasls.hackathon.indicators.IndicatorProvider}, so that new indicators can be added
+ * without changing the traders.
+ */
+public interface IndicatorProvider {
+
+    /**
+     * @return the name traders select the indicator with, as their {@code ma_type}.
+     */
+    String type();
+
+    MovingAverage create(int period);
+}
@@ -0,0 +1,353 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+import com.akkasls.hackathon.metrics.Metrics;
+import lombok.Value;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Process wide registry of moving averages shared by the traders of a test run watching the same market.
+ * <p>
+ * Traders with the same test run, symbol, candle size, moving average type and period would otherwise all compute
+ * the very same value for every candle. Here each distinct moving average is updated once per candle time and the
+ * value is handed out to every trader subscribed to it. Values are kept for as long as a subscriber may still ask for
+ * them, history is only trimmed up to the candle time of the slowest live subscriber, so traders fed the same batch
+ * one after the other all get every value. A subscriber asking for a candle the shared moving average has no value
+ * for (it joined or was restored behind it) is switched to a private moving average rather than getting nothing.
+ */
+public class IndicatorRegistry {
+
+    private static final IndicatorRegistry SHARED = new IndicatorRegistry();
+    private static final LongAdder SUBSCRIBERS_BEHIND = Metrics.counter("shared_moving_averages_behind_total");
+
+    private final ConcurrentHashMap<Key, WeakReference<SharedMovingAverage>> movingAverages =
+            new ConcurrentHashMap<>();
+
+    public static IndicatorRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * The implementation of the moving average is the one registered for its type in {@link Indicators}, so that
+     * subscribers with the same key always share the same implementation. The opt-in exact ({@code BigDecimal})
+     * moving averages of {@link MovingAverages} are not registered types, they are never shared.
+     *
+     * @return a new subscription to the moving average, which stays shared for as long as any subscription to it is
+     * reachable.
+     * @throws IllegalArgumentException if the type is not a registered moving average type.
+     */
+    public Subscription subscribe(String testRunId, String symbol, String interval, String maType, int period) {
+        var factory = Indicators.ofType(maType);
+        var shared = new SharedMovingAverage[1];
+        movingAverages.compute(new Key(testRunId, symbol, interval, maType, period), (key, current) -> {
+            shared[0] = current == null ? null : current.get();
+            if (shared[0] == null) {
+                shared[0] = new SharedMovingAverage(factory, period);
+                return new WeakReference<>(shared[0]);
+            }
+            return current;
+        });
+        return shared[0].subscribe();
+    }
+
+    /**
+     * @return the number of moving averages still shared, the ones without subscribers left are dropped.
+     */
+    public int size() {
+        movingAverages.values().removeIf(reference -> reference.get() == null);
+        return movingAverages.size();
+    }
+
+    @Value
+    private static class Key {
+        String testRunId;
+        String symbol;
+        String interval;
+        String maType;
+        int period;
+    }
+
+    /**
+     * A moving average fed at most once per candle time, along with the values computed for the candles its
+     * subscribers have not all been given yet, oldest first. The window is also kept for the candles some
+     * subscriber stopped at when the moving average moved past them, so that it can be snapshotted as of its own
+     * candle rather than the latest one.
+     */
+    static class SharedMovingAverage {
+
+        private static final int INITIAL_HISTORY_SIZE = 64;
+
+        private final IntFunction<MovingAverage> factory;
+        private final int period;
+        private final MovingAverage movingAverage;
+        private final List<WeakReference<Subscription>> subscriptions = new ArrayList<>();
+        private long[] times = new long[INITIAL_HISTORY_SIZE];
+        private double[] values = new double[INITIAL_HISTORY_SIZE];
+        private Window[] windows = new Window[INITIAL_HISTORY_SIZE];
+        private int first;
+        private int size;
+
+        private SharedMovingAverage(IntFunction<MovingAverage> factory, int period) {
+            this.factory = factory;
+            this.period = period;
+            this.movingAverage = factory.apply(period);
+        }
+
+        private synchronized Subscription subscribe() {
+            var subscription = new Subscription(this);
+            subscriptions.add(new WeakReference<>(subscription));
+            return subscription;
+        }
+
+        private long latestTime() {
+            return size == 0 ? Long.MIN_VALUE : times[index(size - 1)];
+        }
+
+        private int index(int position) {
+            return (first + position) % times.length;
+        }
+
+        /**
+         * Updates the moving average if the time is more recent than the latest one.
+         *
+         * @return the index of the value at that time in the history, -1 if there is none.
+         */
+        private int indexOf(Subscription subscriber, long time, double observation) {
+            if (time > latestTime()) {
+                if (size > 0 && isAnotherSubscriberAt(subscriber, latestTime())) {
+                    windows[index(size - 1)] = window();
+                }
+                append(time, movingAverage.updateWith(observation).getValue());
+                return index(size - 1);
+            }
+            return find(time);
+        }
+
+        private int find(long time) {
+            var low = 0;
+            var high = size - 1;
+            while (low <= high) {
+                var middle = (low + high) >>> 1;
+                var middleTime = times[index(middle)];
+                if (middleTime < time) {
+                    low = middle + 1;
+                } else if (middleTime > time) {
+                    high = middle - 1;
+                } else {
+                    return index(middle);
+                }
+            }
+            return -1;
+        }
+
+        private boolean isAnotherSubscriberAt(Subscription subscriber, long time) {
+            for (var reference : subscriptions) {
+                var subscription = reference.get();
+                if (subscription != null && subscription != subscriber && subscription.lastTime == time) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void append(long time, double value) {
+            if (size == times.length) {
+                trim();
+            }
+            if (size == times.length) {
+                grow();
+            }
+            times[index(size)] = time;
+            values[index(size)] = value;
+            windows[index(size)] = null;
+            size++;
+        }
+
+        /**
+         * Drops the values older than the candle time of the slowest live subscriber.
+         */
+        private void trim() {
+            var slowest = Long.MAX_VALUE;
+            var iterator = subscriptions.iterator();
+            while (iterator.hasNext()) {
+                var subscription = iterator.next().get();
+                if (subscription == null) {
+                    iterator.remove();
+                } else if (subscription.lastTime != Long.MIN_VALUE) {
+                    slowest = Math.min(slowest, subscription.lastTime);
+                }
+            }
+            while (size > 0 && times[first] < slowest) {
+                windows[first] = null;
+                first = (first + 1) % times.length;
+                size--;
+            }
+        }
+
+        private void grow() {
+            var grownTimes = new long[times.length * 2];
+            var grownValues = new double[values.length * 2];
+            var grownWindows = new Window[windows.length * 2];
+            for (int i = 0; i < size; i++) {
+                grownTimes[i] = times[index(i)];
+                grownValues[i] = values[index(i)];
+                grownWindows[i] = windows[index(i)];
+            }
+            times = grownTimes;
+            values = grownValues;
+            windows = grownWindows;
+            first = 0;
+        }
+
+        private void restore(Window window) {
+            if (window.getTime() > latestTime()) {
+                movingAverage.restore(window.getObservations(), window.getValue());
+                append(window.getTime(), movingAverage.getValue());
+            }
+        }
+
+        private Window window() {
+            return new Window(latestTime(), movingAverage.observations(), movingAverage.getValue());
+        }
+
+        /**
+         * @return the window as of the given candle, the latest one if it was not kept.
+         */
+        private Window windowAt(long time) {
+            if (time != latestTime()) {
+                var index = find(time);
+                if (index >= 0 && windows[index] != null) {
+                    return windows[index];
+                }
+            }
+            return window();
+        }
+    }
+
+    /**
+     * The moving average of a trader: the shared one until it is asked for a candle the shared one has no value
+     * for, a private one from then on.
+     */
+    public static class Subscription {
+
+        public final int period;
+        private final SharedMovingAverage shared;
+        // guarded by the shared moving average, Long.MIN_VALUE until first given a value, holds back its history
+        private long lastTime = Long.MIN_VALUE;
+        private Window restored;
+        private MovingAverage own;
+        private long ownTime = Long.MIN_VALUE;
+        private double ownValue = Double.NaN;
+
+        private Subscription(SharedMovingAverage shared) {
+            this.period = shared.period;
+            this.shared = shared;
+        }
+
+        /**
+         * @return the value of the moving average once updated with the observation at the given time, or
+         * {@link Double#NaN} if the moving average is not ready yet.
+         */
+        public double valueAt(long time, double observation) {
+            if (own == null) {
+                synchronized (shared) {
+                    var index = shared.indexOf(this, time, observation);
+                    if (index >= 0) {
+                        lastTime = Math.max(lastTime, time);
+                        return shared.values[index];
+                    }
+                    lastTime = Long.MIN_VALUE;
+                }
+                behind();
+            }
+            if (time > ownTime) {
+                ownTime = time;
+                ownValue = own.updateWith(observation).getValue();
+            }
+            return time == ownTime ? ownValue : Double.NaN;
+        }
+
+        /**
+         * @return the time of the latest candle this subscriber was given a value for, {@link Long#MIN_VALUE} if none.
+         */
+        public long time() {
+            if (own != null) {
+                return ownTime;
+            }
+            synchronized (shared) {
+                return lastTime;
+            }
+        }
+
+        int historySize() {
+            synchronized (shared) {
+                return shared.size;
+            }
+        }
+
+        /**
+         * @return true once this subscriber fell behind the shared moving average and got a private one.
+         */
+        public boolean isPrivate() {
+            return own != null;
+        }
+
+        /**
+         * @return everything needed to restore this moving average as of the latest candle of this subscriber.
+         */
+        public Window window() {
+            if (own != null) {
+                return new Window(ownTime, own.observations(), own.getValue());
+            }
+            synchronized (shared) {
+                return lastTime == Long.MIN_VALUE ? shared.window() : shared.windowAt(lastTime);
+            }
+        }
+
+        /**
+         * Rebuilds the moving average from a previously captured window. The shared moving average is only rebuilt
+         * if it has not seen more recent candles (i.e. another trader on the same market is already live), the window
+         * is otherwise kept to start a private moving average from, should this subscriber be behind.
+         */
+        public void restore(Window window) {
+            restored = window;
+            if (own != null) {
+                startPrivate();
+                return;
+            }
+            synchronized (shared) {
+                shared.restore(window);
+                lastTime = window.getTime();
+            }
+        }
+
+        private void behind() {
+            SUBSCRIBERS_BEHIND.increment();
+            startPrivate();
+        }
+
+        private void startPrivate() {
+            own = shared.factory.apply(period);
+            ownTime = Long.MIN_VALUE;
+            ownValue = Double.NaN;
+            if (restored != null) {
+                own.restore(restored.getObservations(), restored.getValue());
+                ownTime = restored.getTime();
+                ownValue = own.getValue();
+            }
+        }
+    }
+
+    @Value
+    public static class Window {
+        long time;
+        double[] observations;
+        double value;
+    }
+}
@@ -0,0 +1,79 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Registry of the indicator types, by name. Built in types are registered up front, other moving averages are added
+ * by {@link IndicatorProvider}s or {@link #register}.
+ * <p>
+ * Only {@link MovingAverage}s can be selected by traders with their {@code ma_type}, and shared through
+ * {@link IndicatorRegistry}: their short / long crossover strategy compares two values in price units. Oscillators
+ * (RSI, MACD) and bands are {@link TechnicalIndicator}s, looked up with {@link #technicalIndicatorOfType}.
+ * <p>
+ * Every indicator is updated incrementally, in constant time and memory per observation.
+ */
+public class Indicators {
+
+    private static final ConcurrentHashMap<String, IntFunction<MovingAverage>> TYPES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, IntFunction<TechnicalIndicator<?>>> TECHNICAL_TYPES =
+            new ConcurrentHashMap<>();
+
+    static {
+        register("simple", MovingAverages::simple);
+        register("exponential", MovingAverages::exponential);
+        register("weighted", MovingAverages::weighted);
+        register("hull", MovingAverages::hull);
+        TECHNICAL_TYPES.put("rsi", RelativeStrengthIndex::new);
+        TECHNICAL_TYPES.put("bollinger", BollingerBands::new);
+        TECHNICAL_TYPES.put("macd", Macd::new);
+        ServiceLoader.load(IndicatorProvider.class).forEach(provider -> register(provider.type(), provider::create));
+    }
+
+    public static void register(String type, IntFunction<MovingAverage> factory) {
+        if (TECHNICAL_TYPES.containsKey(type) || TYPES.putIfAbsent(type, factory) != null) {
+            throw new IllegalArgumentException("Indicator type already registered: " + type);
+        }
+    }
+
+    /**
+     * @return the factory of the moving averages of the given type (i.e. "simple" or "hull").
+     */
+    public static IntFunction<MovingAverage> ofType(String type) {
+        var factory = TYPES.get(type);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unsupported moving average type: " + type);
+        }
+        return factory;
+    }
+
+    /**
+     * @return the factory of the technical indicators of the given type (i.e. "rsi" or "macd").
+     */
+    public static IntFunction<TechnicalIndicator<?>> technicalIndicatorOfType(String type) {
+        var factory = TECHNICAL_TYPES.get(type);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unsupported technical indicator type: " + type);
+        }
+        return factory;
+    }
+
+    public static boolean isMovingAverage(String type) {
+        return TYPES.containsKey(type);
+    }
+
+    /**
+     * @return the types traders can select with their {@code ma_type}.
+     */
+    public static Set<String> movingAverageTypes() {
+        return Set.copyOf(TYPES.keySet());
+    }
+
+    public static Set<String> technicalIndicatorTypes() {
+        return Set.copyOf(TECHNICAL_TYPES.keySet());
+    }
+}
@@ -0,0 +1,100 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+import lombok.Value;
+
+/**
+ * Moving average convergence divergence: the difference between a fast and a slow exponential moving average, its
+ * value, along with its signal line. The period is the fast one, the slow and signal periods keep the usual 12, 26, 9
+ * proportions. Unlike moving averages its value is centred around zero.
+ */
+public class Macd implements TechnicalIndicator<Macd.State> {
+
+    private final int period;
+    private final MovingAverage fast;
+    private final MovingAverage slow;
+    private final MovingAverage signal;
+
+    public Macd(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("MACD period must be positive: " + period);
+        }
+        this.period = period;
+        this.fast = MovingAverages.exponential(period);
+        this.slow = MovingAverages.exponential(Math.max(period + 1, (int) Math.round(period * 26 / 12.0)));
+        this.signal = MovingAverages.exponential(Math.max(1, (int) Math.round(period * 9 / 12.0)));
+    }
+
+    @Override
+    public int period() {
+        return period;
+    }
+
+    @Override
+    public boolean isReady() {
+        return slow.isReady();
+    }
+
+    @Override
+    public double getValue() {
+        return isReady() ? fast.getValue() - slow.getValue() : Double.NaN;
+    }
+
+    /**
+     * @return the exponential moving average of the value, {@link Double#NaN} until enough values are seen.
+     */
+    public double signal() {
+        return signal.getValue();
+    }
+
+    public double histogram() {
+        return getValue() - signal();
+    }
+
+    @Override
+    public Macd updateWith(double observation) {
+        fast.updateWith(observation);
+        slow.updateWith(observation);
+        if (slow.isReady()) {
+            signal.updateWith(getValue());
+        }
+        return this;
+    }
+
+    @Override
+    public State state() {
+        return new State(Average.of(fast), Average.of(slow), Average.of(signal));
+    }
+
+    @Override
+    public Macd restore(State state) {
+        state.getFast().restore(fast);
+        state.getSlow().restore(slow);
+        state.getSignal().restore(signal);
+        return this;
+    }
+
+    @Value
+    public static class State {
+        Average fast;
+        Average slow;
+        Average signal;
+    }
+
+    /**
+     * What the exponential moving averages of a MACD need to be restored, see {@link MovingAverage#observations()}.
+     */
+    @Value
+    public static class Average {
+        double[] observations;
+        double value;
+
+        private static Average of(MovingAverage movingAverage) {
+            return new Average(movingAverage.observations(), movingAverage.getValue());
+        }
+
+        private void restore(MovingAverage movingAverage) {
+            movingAverage.restore(observations, value);
+        }
+    }
+}
@@ -2,9 +2,14 @@ package com.akkasls.hackathon.indicators;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
+/**
+ * Moving averages, see {@link Indicators} for looking them up by type.
+ */
 public class MovingAverages {
 
     public static MovingAverage simple(int period) {
@@ -15,24 +20,405 @@ public class MovingAverages {
         return new ExponentialMovingAverage(period);
     }
 
+    public static MovingAverage weighted(int period) {
+        return new WeightedMovingAverage(period);
+    }
+
+    public static MovingAverage hull(int period) {
+        return new HullMovingAverage(period);
+    }
+
+    /**
+     * Opt-in {@link BigDecimal} backed implementation. Slower and allocating on every update, use it only where
+     * exact decimal arithmetic matters more than throughput.
+     */
+    public static ExactMovingAverage exactSimple(int period) {
+        return new ExactSimpleMovingAverage(period);
+    }
+
+    /**
+     * Opt-in {@link BigDecimal} backed implementation, see {@link #exactSimple(int)}.
+     */
+    public static ExactMovingAverage exactExponential(int period) {
+        return new ExactExponentialMovingAverage(period);
+    }
+
     public static abstract class MovingAverage {
         public final int period;
-        private BigDecimal value;
-        private final LinkedList<BigDecimal> observations = new LinkedList<>();
 
         protected MovingAverage(int period) {
+            if (period < 1) {
+                throw new IllegalArgumentException("Moving Average period must be positive: " + period);
+            }
             this.period = period;
         }
 
+        /**
+         * @return true once at least {@link #period} observations have been seen.
+         */
+        public abstract boolean isReady();
+
+        /**
+         * Allocation free access to the current value.
+         *
+         * @return the current value or {@link Double#NaN} if the moving average is not ready yet.
+         */
+        public abstract double getValue();
+
+        public abstract MovingAverage updateWith(double observation);
+
+        /**
+         * @return the observations needed, along with {@link #getValue()}, to {@link #restore} this moving average,
+         * oldest first.
+         */
+        public abstract double[] observations();
+
+        /**
+         * Discards the current state and rebuilds it from previously captured {@link #observations()} and
+         * {@link #getValue()}.
+         */
+        public abstract MovingAverage restore(double[] observations, double value);
+
+        public OptionalDouble value() {
+            return isReady() ? OptionalDouble.of(getValue()) : OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * Keeps the last {@link #period} observations in a ring buffer along with their running sum. The sum is
+     * recomputed from the buffer every time the buffer wraps around so that rounding errors never accumulate
+     * over more than one window, at an amortized O(1) cost per update.
+     */
+    private static class SimpleMovingAverage extends MovingAverage {
+
+        private final double[] observations;
+        private int next;
+        private int size;
+        private double sum;
+
+        public SimpleMovingAverage(int period) {
+            super(period);
+            this.observations = new double[period];
+        }
+
+        @Override
+        public boolean isReady() {
+            return size == period;
+        }
+
+        @Override
+        public double getValue() {
+            return isReady() ? sum / period : Double.NaN;
+        }
+
+        @Override
+        public MovingAverage updateWith(double observation) {
+            if (isReady()) {
+                sum -= observations[next];
+            } else {
+                size++;
+            }
+            observations[next] = observation;
+            sum += observation;
+            if (++next == period) {
+                next = 0;
+                sum = sumOfObservations();
+            }
+            return this;
+        }
+
+        @Override
+        public double[] observations() {
+            var window = new double[size];
+            var oldest = isReady() ? next : 0;
+            for (int i = 0; i < size; i++) {
+                window[i] = observations[(oldest + i) % period];
+            }
+            return window;
+        }
+
+        @Override
+        public MovingAverage restore(double[] observations, double value) {
+            next = 0;
+            size = 0;
+            sum = 0;
+            for (int i = Math.max(0, observations.length - period); i < observations.length; i++) {
+                updateWith(observations[i]);
+            }
+            return this;
+        }
+
+        private double sumOfObservations() {
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += observations[i];
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Seeded with the simple average of the first {@link #period} observations, then updated recursively.
+     */
+    private static class ExponentialMovingAverage extends MovingAverage {
+
+        private final double k;
+        private final double[] seed;
+        private int size;
+        private double value;
+
+        public ExponentialMovingAverage(int period) {
+            super(period);
+            this.k = 2.0 / (1 + period);
+            this.seed = new double[period];
+        }
+
+        @Override
+        public boolean isReady() {
+            return size == period;
+        }
+
+        @Override
+        public double getValue() {
+            return isReady() ? value : Double.NaN;
+        }
+
+        @Override
+        public MovingAverage updateWith(double observation) {
+            if (isReady()) {
+                value += k * (observation - value);
+            } else {
+                seed[size] = observation;
+                value += observation;
+                if (++size == period) {
+                    value /= period;
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public double[] observations() {
+            return isReady() ? new double[0] : Arrays.copyOf(seed, size);
+        }
+
+        @Override
+        public MovingAverage restore(double[] observations, double value) {
+            size = 0;
+            this.value = 0;
+            if (Double.isNaN(value)) {
+                for (int i = 0; i < Math.min(period, observations.length); i++) {
+                    updateWith(observations[i]);
+                }
+            } else {
+                size = period;
+                this.value = value;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Weights the last {@link #period} observations linearly, the most recent one having weight {@link #period}. The
+     * weighted sum is updated from the plain sum of the window, both are recomputed from the ring buffer every time
+     * it wraps around, as in {@link SimpleMovingAverage}.
+     */
+    private static class WeightedMovingAverage extends MovingAverage {
+
+        private final double[] observations;
+        private final double totalWeight;
+        private int next;
+        private int size;
+        private double sum;
+        private double weightedSum;
+
+        public WeightedMovingAverage(int period) {
+            super(period);
+            this.observations = new double[period];
+            this.totalWeight = period * (period + 1) / 2.0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return size == period;
+        }
+
+        @Override
+        public double getValue() {
+            return isReady() ? weightedSum / totalWeight : Double.NaN;
+        }
+
+        @Override
+        public MovingAverage updateWith(double observation) {
+            if (isReady()) {
+                weightedSum += period * observation - sum;
+                sum += observation - observations[next];
+            } else {
+                size++;
+                weightedSum += size * observation;
+                sum += observation;
+            }
+            observations[next] = observation;
+            if (++next == period) {
+                next = 0;
+                resum();
+            }
+            return this;
+        }
+
+        @Override
+        public double[] observations() {
+            var window = new double[size];
+            var oldest = isReady() ? next : 0;
+            for (int i = 0; i < size; i++) {
+                window[i] = observations[(oldest + i) % period];
+            }
+            return window;
+        }
+
+        @Override
+        public MovingAverage restore(double[] observations, double value) {
+            next = 0;
+            size = 0;
+            sum = 0;
+            weightedSum = 0;
+            for (int i = Math.max(0, observations.length - period); i < observations.length; i++) {
+                updateWith(observations[i]);
+            }
+            return this;
+        }
+
+        private void resum() {
+            sum = 0;
+            weightedSum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += observations[i];
+                weightedSum += (i + 1) * observations[i];
+            }
+        }
+    }
+
+    /**
+     * Weighted moving average, over the square root of {@link #period}, of twice the weighted moving average over
+     * half the period less the one over the whole period. Only the raw observations needed to rebuild the three
+     * averages are kept for {@link #restore}.
+     */
+    private static class HullMovingAverage extends MovingAverage {
+
+        private final MovingAverage half;
+        private final MovingAverage full;
+        private final MovingAverage smoothing;
+        private final double[] history;
+        private int next;
+        private int size;
+
+        public HullMovingAverage(int period) {
+            super(period);
+            this.half = new WeightedMovingAverage(Math.max(1, period / 2));
+            this.full = new WeightedMovingAverage(period);
+            this.smoothing = new WeightedMovingAverage(Math.max(1, (int) Math.round(Math.sqrt(period))));
+            this.history = new double[period + smoothing.period - 1];
+        }
+
+        @Override
+        public boolean isReady() {
+            return smoothing.isReady();
+        }
+
+        @Override
+        public double getValue() {
+            return smoothing.getValue();
+        }
+
+        @Override
+        public MovingAverage updateWith(double observation) {
+            history[next] = observation;
+            next = (next + 1) % history.length;
+            size = Math.min(size + 1, history.length);
+            half.updateWith(observation);
+            full.updateWith(observation);
+            if (full.isReady()) {
+                smoothing.updateWith(2 * half.getValue() - full.getValue());
+            }
+            return this;
+        }
+
+        @Override
+        public double[] observations() {
+            var window = new double[size];
+            var oldest = size == history.length ? next : 0;
+            for (int i = 0; i < size; i++) {
+                window[i] = history[(oldest + i) % history.length];
+            }
+            return window;
+        }
+
+        @Override
+        public MovingAverage restore(double[] observations, double value) {
+            next = 0;
+            size = 0;
+            half.restore(new double[0], Double.NaN);
+            full.restore(new double[0], Double.NaN);
+            smoothing.restore(new double[0], Double.NaN);
+            for (int i = Math.max(0, observations.length - history.length); i < observations.length; i++) {
+                updateWith(observations[i]);
+            }
+            return this;
+        }
+    }
+
+    public static abstract class ExactMovingAverage extends MovingAverage {
+        private BigDecimal value;
+        private final ArrayDeque<BigDecimal> observations = new ArrayDeque<>();
+
+        protected ExactMovingAverage(int period) {
+            super(period);
+        }
+
         private BigDecimal period() {
             return BigDecimal.valueOf(period);
         }
 
-        public Optional<BigDecimal> value() {
+        @Override
+        public boolean isReady() {
+            return value != null;
+        }
+
+        @Override
+        public double getValue() {
+            return isReady() ? value.doubleValue() : Double.NaN;
+        }
+
+        public Optional<BigDecimal> exactValue() {
             return Optional.ofNullable(value);
         }
 
-        public MovingAverage updateWith(BigDecimal observation) {
+        @Override
+        public ExactMovingAverage updateWith(double observation) {
+            return updateWith(BigDecimal.valueOf(observation));
+        }
+
+        @Override
+        public double[] observations() {
+            var window = new double[observations.size()];
+            var it = observations.descendingIterator();
+            for (int i = 0; it.hasNext(); i++) {
+                window[i] = it.next().doubleValue();
+            }
+            return window;
+        }
+
+        @Override
+        public ExactMovingAverage restore(double[] observations, double value) {
+            this.observations.clear();
+            this.value = null;
+            for (int i = Math.max(0, observations.length - period); i < observations.length; i++) {
+                updateWith(observations[i]);
+            }
+            return this;
+        }
+
+        public ExactMovingAverage updateWith(BigDecimal observation) {
             if (observations.size() >= period) {
                 return updateWith(value, observation);
             } else {
@@ -44,17 +430,17 @@ public class MovingAverages {
             return this;
         }
 
-        protected abstract MovingAverage updateWith(BigDecimal currentValue, BigDecimal observation);
+        protected abstract ExactMovingAverage updateWith(BigDecimal currentValue, BigDecimal observation);
     }
 
-    private static class SimpleMovingAverage extends MovingAverage {
+    private static class ExactSimpleMovingAverage extends ExactMovingAverage {
 
-        public SimpleMovingAverage(int period) {
+        public ExactSimpleMovingAverage(int period) {
             super(period);
         }
 
         @Override
-        protected MovingAverage updateWith(BigDecimal currentValue, BigDecimal observation) {
+        protected ExactMovingAverage updateWith(BigDecimal currentValue, BigDecimal observation) {
             var expiring = super.observations.removeLast();
             super.observations.push(observation);
             super.value = (currentValue.multiply(super.period()).subtract(expiring).add(observation))
@@ -63,14 +449,23 @@ public class MovingAverages {
         }
     }
 
-    private static class ExponentialMovingAverage extends MovingAverage {
+    private static class ExactExponentialMovingAverage extends ExactMovingAverage {
 
-        public ExponentialMovingAverage(int period) {
+        public ExactExponentialMovingAverage(int period) {
             super(period);
         }
 
         @Override
-        protected MovingAverage updateWith(BigDecimal currentValue, BigDecimal observation) {
+        public ExactMovingAverage restore(double[] observations, double value) {
+            super.restore(observations, value);
+            if (isReady() && !Double.isNaN(value)) {
+                super.value = BigDecimal.valueOf(value);
+            }
+            return this;
+        }
+
+        @Override
+        protected ExactMovingAverage updateWith(BigDecimal currentValue, BigDecimal observation) {
             var k = BigDecimal.valueOf(2.0 / (double) (1 + super.period));
             super.value = observation.multiply(k).add(currentValue.multiply(BigDecimal.ONE.subtract(k)));
             return this;
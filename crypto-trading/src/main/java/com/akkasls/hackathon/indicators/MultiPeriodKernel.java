@@ -0,0 +1,103 @@
+package com.akkasls.hackathon.indicators;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Moving averages of many periods over a single price history, computed in one pass for parameter sweeps.
+ * <p>
+ * Simple moving averages of any period are read off one prefix sum array, exponential ones are advanced together,
+ * one candle at a time, over arrays of smoothing factors sorted by period. Their values are written candle by candle
+ * to a small block, contiguously, which is transposed into the per period rows once full, so that the per candle
+ * update is a unit stride loop over primitive arrays rather than a scatter across rows. Prices are summed relative
+ * to the first one, which keeps the prefix sums small enough for long series not to lose precision. Values match
+ * {@link MovingAverages#simple} and {@link MovingAverages#exponential} up to rounding.
+ */
+public class MultiPeriodKernel {
+
+    // candles per block of exponential moving averages, small enough for a block to stay in cache when transposed
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * @return for each period, in the given order, its simple moving average at every price, NaN until it is ready.
+     */
+    public static double[][] simple(double[] prices, int[] periods) {
+        var shift = prices.length == 0 ? 0 : prices[0];
+        var prefixSums = prefixSums(prices, shift);
+        var values = new double[periods.length][];
+        for (int j = 0; j < periods.length; j++) {
+            var period = checkPeriod(periods[j]);
+            var inverse = 1.0 / period;
+            var row = new double[prices.length];
+            var ready = Math.min(period - 1, prices.length);
+            Arrays.fill(row, 0, ready, Double.NaN);
+            for (int i = ready; i < prices.length; i++) {
+                row[i] = shift + (prefixSums[i + 1] - prefixSums[i + 1 - period]) * inverse;
+            }
+            values[j] = row;
+        }
+        return values;
+    }
+
+    /**
+     * @return for each period, in the given order, its exponential moving average at every price, NaN until it is
+     * ready.
+     */
+    public static double[][] exponential(double[] prices, int[] periods) {
+        var shift = prices.length == 0 ? 0 : prices[0];
+        var prefixSums = prefixSums(prices, shift);
+        var order = IntStream.range(0, periods.length).boxed()
+                .sorted((a, b) -> Integer.compare(periods[a], periods[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        var sortedPeriods = new int[periods.length];
+        var k = new double[periods.length];
+        for (int j = 0; j < order.length; j++) {
+            sortedPeriods[j] = checkPeriod(periods[order[j]]);
+            k[j] = 2.0 / (1 + sortedPeriods[j]);
+        }
+
+        var values = new double[periods.length][prices.length];
+        var current = new double[periods.length];
+        Arrays.fill(current, Double.NaN);
+        var block = new double[BLOCK_SIZE * periods.length];
+        var ready = 0;
+        for (int from = 0; from < prices.length; from += BLOCK_SIZE) {
+            var to = Math.min(from + BLOCK_SIZE, prices.length);
+            for (int i = from; i < to; i++) {
+                var price = prices[i];
+                for (int j = 0; j < ready; j++) {
+                    current[j] += k[j] * (price - current[j]);
+                }
+                // seeded with the simple average of their first observations, as MovingAverages.exponential
+                while (ready < sortedPeriods.length && sortedPeriods[ready] == i + 1) {
+                    current[ready] = shift + prefixSums[i + 1] / sortedPeriods[ready];
+                    ready++;
+                }
+                System.arraycopy(current, 0, block, (i - from) * periods.length, periods.length);
+            }
+            for (int j = 0; j < order.length; j++) {
+                var row = values[order[j]];
+                for (int i = from; i < to; i++) {
+                    row[i] = block[(i - from) * periods.length + j];
+                }
+            }
+        }
+        return values;
+    }
+
+    private static double[] prefixSums(double[] prices, double shift) {
+        var prefixSums = new double[prices.length + 1];
+        for (int i = 0; i < prices.length; i++) {
+            prefixSums[i + 1] = prefixSums[i] + (prices[i] - shift);
+        }
+        return prefixSums;
+    }
+
+    private static int checkPeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Moving Average period must be positive: " + period);
+        }
+        return period;
+    }
+}
@@ -0,0 +1,84 @@
+package com.akkasls.hackathon.indicators;
+
+import lombok.Value;
+
+/**
+ * Wilder's relative strength index, in [0, 100]. Average gains and losses are seeded with their simple average over
+ * the first {@link #period} price changes, then smoothed recursively, so it is ready after {@link #period} + 1
+ * observations.
+ */
+public class RelativeStrengthIndex implements TechnicalIndicator<RelativeStrengthIndex.State> {
+
+    private final int period;
+    private int changes = -1;
+    private double previous;
+    private double averageGain;
+    private double averageLoss;
+
+    public RelativeStrengthIndex(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("RSI period must be positive: " + period);
+        }
+        this.period = period;
+    }
+
+    @Override
+    public int period() {
+        return period;
+    }
+
+    @Override
+    public boolean isReady() {
+        return changes >= period;
+    }
+
+    @Override
+    public double getValue() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        return averageLoss == 0 ? 100 : 100 - 100 / (1 + averageGain / averageLoss);
+    }
+
+    @Override
+    public RelativeStrengthIndex updateWith(double observation) {
+        if (changes >= 0) {
+            var change = observation - previous;
+            var gain = Math.max(change, 0);
+            var loss = Math.max(-change, 0);
+            if (isReady()) {
+                averageGain += (gain - averageGain) / period;
+                averageLoss += (loss - averageLoss) / period;
+            } else {
+                averageGain += gain / period;
+                averageLoss += loss / period;
+            }
+        }
+        changes = Math.min(changes + 1, period);
+        previous = observation;
+        return this;
+    }
+
+    @Override
+    public State state() {
+        return new State(changes, previous, averageGain, averageLoss);
+    }
+
+    @Override
+    public RelativeStrengthIndex restore(State state) {
+        changes = state.getChanges();
+        previous = state.getPrevious();
+        averageGain = state.getAverageGain();
+        averageLoss = state.getAverageLoss();
+        return this;
+    }
+
+    @Value
+    public static class State {
+        // price changes seen, capped to the period, -1 before the first observation
+        int changes;
+        double previous;
+        double averageGain;
+        double averageLoss;
+    }
+}
@@ -0,0 +1,45 @@
+package com.akkasls.hackathon.indicators;
+
+import com.akkasls.hackathon.indicators.MovingAverages.MovingAverage;
+
+import java.util.OptionalDouble;
+
+/**
+ * An indicator of the closing prices other than a moving average, i.e. an oscillator or bands. Its value does not
+ * follow the price, so it cannot be compared to a moving average, and its state is not a window of prices: rather than
+ * the {@link MovingAverage#observations()} of a moving average it is captured as a {@link #state()} of its own type.
+ *
+ * @param <S> the immutable state of the indicator, see {@link #restore}.
+ */
+public interface TechnicalIndicator<S> {
+
+    int period();
+
+    /**
+     * @return true once enough observations have been seen for {@link #getValue()} to be defined.
+     */
+    boolean isReady();
+
+    /**
+     * Allocation free access to the current value.
+     *
+     * @return the current value or {@link Double#NaN} if the indicator is not ready yet.
+     */
+    double getValue();
+
+    TechnicalIndicator<S> updateWith(double observation);
+
+    /**
+     * @return everything needed to {@link #restore} this indicator as it is now.
+     */
+    S state();
+
+    /**
+     * Discards the current state and replaces it with a previously captured {@link #state()}.
+     */
+    TechnicalIndicator<S> restore(S state);
+
+    default OptionalDouble value() {
+        return isReady() ? OptionalDouble.of(getValue()) : OptionalDouble.empty();
+    }
+}
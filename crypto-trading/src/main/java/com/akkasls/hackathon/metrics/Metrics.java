@@ -0,0 +1,115 @@
+package com.akkasls.hackathon.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process wide counters and latency histograms, cheap enough to be updated on every candle.
+ * <p>
+ * Metrics are identified by a name and optional label pairs (i.e. {@code counter("candles_total", "market",
+ * "BTCEUR_5m")}). Look them up once and keep the returned handle around in hot paths, recording is then lock and
+ * allocation free.
+ */
+public class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Latency> latencies = new ConcurrentHashMap<>();
+
+    public static LongAdder counter(String name, String... labels) {
+        return counters.computeIfAbsent(key(name, labels), key -> new LongAdder());
+    }
+
+    public static Latency latency(String name, String... labels) {
+        return latencies.computeIfAbsent(key(name, labels), key -> new Latency());
+    }
+
+    public static <T> T timed(Latency latency, Supplier<T> f) {
+        var start = System.nanoTime();
+        try {
+            return f.get();
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    /**
+     * @return every metric in the Prometheus text format, latencies as summaries in seconds.
+     */
+    public static String render() {
+        var out = new StringBuilder();
+        new TreeMap<>(counters).forEach((key, counter) ->
+                out.append(key).append(' ').append(counter.sum()).append('\n'));
+        new TreeMap<>(latencies).forEach((key, latency) -> {
+            var histogram = latency.snapshot();
+            var name = key.contains("{") ? key.substring(0, key.indexOf('{')) : key;
+            var labels = key.contains("{") ? key.substring(key.indexOf('{') + 1, key.length() - 1) : "";
+            var separator = labels.isEmpty() ? "" : ",";
+            for (var quantile : QUANTILES) {
+                out.append(name).append("_seconds{").append(labels).append(separator)
+                        .append("quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append(name).append("_seconds_max").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                    .append(seconds(histogram.getMaxValue())).append('\n');
+            out.append(name).append("_seconds_count").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ')
+                    .append(histogram.getTotalCount()).append('\n');
+        });
+        return out.toString();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String key(String name, String... labels) {
+        if (labels.length == 0) {
+            return name;
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs: " + String.join(",", labels));
+        }
+        var sorted = new TreeMap<String, String>();
+        for (int i = 0; i < labels.length; i += 2) {
+            sorted.put(labels[i], labels[i + 1]);
+        }
+        var key = new StringBuilder(name).append('{');
+        for (Map.Entry<String, String> label : sorted.entrySet()) {
+            if (key.charAt(key.length() - 1) != '{') key.append(',');
+            key.append(label.getKey()).append("=\"").append(label.getValue()).append('"');
+        }
+        return key.append('}').toString();
+    }
+
+    /**
+     * HDR histogram of nanosecond latencies. Recording is wait free, readers accumulate what was recorded since the
+     * previous read.
+     */
+    public static class Latency {
+
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private Histogram interval;
+
+        public void record(long nanos) {
+            recorder.recordValue(Math.max(0, nanos));
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.akkasls.hackathon.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes {@link Metrics}, depending on the environment:
+ * <ul>
+ *     <li>{@code METRICS_PORT}: serves them on {@code http://<host>:<port>/metrics} for scraping.</li>
+ *     <li>{@code METRICS_DUMP_INTERVAL_SECONDS}: logs them periodically.</li>
+ * </ul>
+ */
+@Slf4j
+public class MetricsReporter {
+
+    public static void start() {
+        env("METRICS_PORT").ifPresent(MetricsReporter::serve);
+        env("METRICS_DUMP_INTERVAL_SECONDS").ifPresent(MetricsReporter::dumpEvery);
+    }
+
+    @SneakyThrows
+    private static void serve(int port) {
+        var server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            var body = Metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(daemon("metrics-http")));
+        server.start();
+        log.info("Serving metrics on port {}", port);
+    }
+
+    private static void dumpEvery(int seconds) {
+        Executors.newSingleThreadScheduledExecutor(daemon("metrics-dump"))
+                .scheduleAtFixedRate(() -> log.info("Metrics:\n{}", Metrics.render()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Optional<Integer> env(String name) {
+        return Optional.ofNullable(System.getenv(name)).filter(value -> !value.isBlank()).map(Integer::parseInt);
+    }
+}
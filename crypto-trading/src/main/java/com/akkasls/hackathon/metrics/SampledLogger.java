@@ -0,0 +1,61 @@
+package com.akkasls.hackathon.metrics;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most one message per interval, counting the ones suppressed in between. Meant for diagnostics on hot
+ * paths, where logging every occurrence would dominate the cost of the work itself.
+ */
+public class SampledLogger {
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder suppressed = new LongAdder();
+
+    public SampledLogger(Logger logger, Duration interval) {
+        this.logger = logger;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    public void warn(String format, Object... args) {
+        if (sampled()) {
+            var suppressedCount = suppressed.sumThenReset();
+            if (suppressedCount > 0) {
+                var withSuppressed = Arrays.copyOf(args, args.length + 1);
+                withSuppressed[args.length] = suppressedCount;
+                logger.warn(format + " ({} similar messages suppressed)", withSuppressed);
+            } else {
+                logger.warn(format, args);
+            }
+        }
+    }
+
+    public void info(String message) {
+        if (sampled()) {
+            var suppressedCount = suppressed.sumThenReset();
+            if (suppressedCount > 0) {
+                logger.info(message + " ({} similar messages suppressed)", suppressedCount);
+            } else {
+                logger.info(message);
+            }
+        }
+    }
+
+    private boolean sampled() {
+        var now = System.nanoTime();
+        var next = nextAllowed.get();
+        if (now - next >= 0 || next == Long.MIN_VALUE) {
+            if (nextAllowed.compareAndSet(next, now + intervalNanos)) {
+                return true;
+            }
+        }
+        suppressed.increment();
+        return false;
+    }
+}
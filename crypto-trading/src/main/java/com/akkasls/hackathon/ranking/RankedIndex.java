@@ -0,0 +1,217 @@
+package com.akkasls.hackathon.ranking;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traders ranked by a score, highest first and ties broken by trader id.
+ * <p>
+ * Backed by an indexable skip list: each link also records how many entries it skips, so that updates, the rank of
+ * a trader and the trader at a given rank are all O(log N) and the top n are read in O(log N + n). Not thread safe.
+ */
+public class RankedIndex {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(null, Double.NaN, MAX_LEVEL);
+    private final Map<String, Node> nodes = new HashMap<>();
+    private int level = 1;
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public Optional<Double> score(String traderId) {
+        return Optional.ofNullable(nodes.get(traderId)).map(node -> node.score);
+    }
+
+    /**
+     * @return whether the index changed, that is the trader was not ranked yet or had a different score.
+     */
+    public boolean put(String traderId, double score) {
+        var existing = nodes.get(traderId);
+        if (existing != null) {
+            if (Double.compare(existing.score, score) == 0) {
+                return false;
+            }
+            remove(traderId);
+        }
+        nodes.put(traderId, link(traderId, score));
+        return true;
+    }
+
+    public boolean remove(String traderId) {
+        var existing = nodes.remove(traderId);
+        if (existing == null) {
+            return false;
+        }
+        unlink(existing);
+        return true;
+    }
+
+    /**
+     * @return the rank of the trader, 1 being the highest score, if ranked.
+     */
+    public Optional<Integer> rank(String traderId) {
+        var node = nodes.get(traderId);
+        if (node == null) {
+            return Optional.empty();
+        }
+        var x = head;
+        var rank = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !before(node, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x == node) {
+                return Optional.of(rank);
+            }
+        }
+        throw new IllegalStateException("Trader " + traderId + " is indexed but not linked");
+    }
+
+    /**
+     * @param rank 1 being the highest score.
+     */
+    public Optional<Entry> atRank(int rank) {
+        return Optional.ofNullable(nodeAt(rank)).map(Node::toEntry);
+    }
+
+    /**
+     * @param percentile in [0, 100], the share of ranked traders scoring at most as much as the one returned.
+     */
+    public Optional<Entry> atPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100], got " + percentile);
+        }
+        var below = (int) Math.ceil(percentile / 100 * size());
+        return atRank(Math.min(size(), Math.max(1, size() - below + 1)));
+    }
+
+    public List<Entry> top(int n) {
+        var top = new ArrayList<Entry>(Math.min(Math.max(n, 0), size()));
+        var node = nodeAt(1);
+        while (node != null && top.size() < n) {
+            top.add(node.toEntry());
+            node = node.next[0];
+        }
+        return top;
+    }
+
+    @Value
+    public static class Entry {
+        String traderId;
+        double score;
+    }
+
+    private Node nodeAt(int rank) {
+        if (rank < 1 || rank > size()) {
+            return null;
+        }
+        var x = head;
+        var traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private Node link(String traderId, double score) {
+        var node = new Node(traderId, score, randomLevel());
+        var update = new Node[MAX_LEVEL];
+        var rank = new int[MAX_LEVEL];
+        var x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], node)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        if (node.next.length > level) {
+            for (int i = level; i < node.next.length; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size();
+            }
+            level = node.next.length;
+        }
+        for (int i = 0; i < node.next.length; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = node.next.length; i < level; i++) {
+            update[i].span[i]++;
+        }
+        return node;
+    }
+
+    private void unlink(Node node) {
+        var update = new Node[MAX_LEVEL];
+        var x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], node)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+    }
+
+    private static boolean before(Node a, Node b) {
+        var byScore = Double.compare(b.score, a.score);
+        return byScore < 0 || (byScore == 0 && a.traderId.compareTo(b.traderId) < 0);
+    }
+
+    private static int randomLevel() {
+        var level = 1;
+        while (level < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private static final class Node {
+        private final String traderId;
+        private final double score;
+        private final Node[] next;
+        private final int[] span;
+
+        private Node(String traderId, double score, int level) {
+            this.traderId = traderId;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+
+        private Entry toEntry() {
+            return new Entry(traderId, score);
+        }
+    }
+}
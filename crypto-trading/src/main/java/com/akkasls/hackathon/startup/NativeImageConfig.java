@@ -0,0 +1,91 @@
+package com.akkasls.hackathon.startup;
+
+import com.akkasls.hackathon.CryptoTradingServiceRunner;
+import com.akkasls.hackathon.Trading;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import lombok.SneakyThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Generates the GraalVM native-image reflection config of the service: the protobuf messages and their builders,
+ * accessed reflectively by the generated code and by the SDK, and the entities and views registered by
+ * {@link CryptoTradingServiceRunner}, whose handlers are found by their annotations.
+ * <pre>
+ *   NativeImageConfig &lt;output dir&gt;
+ * </pre>
+ * The config is generated from the descriptors rather than kept in the repository, so that it follows the proto. Akka
+ * and gRPC need more than this: merge in what the tracing agent records during a run of the service, i.e. with
+ * {@code -agentlib:native-image-agent=config-merge-dir=build/native-image}.
+ */
+public class NativeImageConfig {
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: NativeImageConfig <output dir>");
+            System.exit(1);
+        }
+        var directory = Files.createDirectories(Path.of(args[0]));
+        Files.writeString(directory.resolve("reflect-config.json"), reflectConfig());
+    }
+
+    public static String reflectConfig() {
+        var classes = new TreeSet<String>();
+        classes.add(Trading.class.getName());
+        messageClasses(Trading.getDescriptor(), classes);
+        for (var dependency : Trading.getDescriptor().getDependencies()) {
+            messageClasses(dependency, classes);
+        }
+        CryptoTradingServiceRunner.COMPONENTS.forEach(component -> classes.add(component.getName()));
+        return classes.stream()
+                .map(name -> "  {\n"
+                        + "    \"name\": \"" + name + "\",\n"
+                        + "    \"allDeclaredConstructors\": true,\n"
+                        + "    \"allDeclaredMethods\": true,\n"
+                        + "    \"allDeclaredFields\": true\n"
+                        + "  }")
+                .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+    }
+
+    private static void messageClasses(FileDescriptor file, TreeSet<String> classes) {
+        var options = file.getOptions();
+        var javaPackage = options.hasJavaPackage() ? options.getJavaPackage() : file.getPackage();
+        var prefix = options.getJavaMultipleFiles()
+                ? javaPackage + "."
+                : javaPackage + "." + outerClassName(file) + "$";
+        messageClasses(file.getMessageTypes(), prefix, classes);
+    }
+
+    private static void messageClasses(List<Descriptor> messages, String prefix, TreeSet<String> classes) {
+        for (var message : messages) {
+            var name = prefix + message.getName();
+            classes.add(name);
+            classes.add(name + "$Builder");
+            messageClasses(message.getNestedTypes(), name + "$", classes);
+        }
+    }
+
+    private static String outerClassName(FileDescriptor file) {
+        if (file.getOptions().hasJavaOuterClassname()) {
+            return file.getOptions().getJavaOuterClassname();
+        }
+        var name = Path.of(file.getName()).getFileName().toString().replaceAll("\\.proto$", "");
+        var outer = new StringBuilder();
+        var upper = true;
+        for (var c : name.toCharArray()) {
+            if (c == '_' || c == '-') {
+                upper = true;
+            } else {
+                outer.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return outer.toString();
+    }
+}
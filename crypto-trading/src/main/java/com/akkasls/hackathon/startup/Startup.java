@@ -0,0 +1,40 @@
+package com.akkasls.hackathon.startup;
+
+import com.akkasls.hackathon.metrics.Metrics;
+import com.akkasls.hackathon.metrics.Metrics.Latency;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Startup timings, reported as metrics: how long the warm-up took and how long after the start of the JVM the first
+ * candle was processed, which is what a scale out costs before the new instance is useful.
+ */
+@Slf4j
+public class Startup {
+
+    private static final Latency WARMUP_LATENCY = Metrics.latency("startup_warmup");
+    private static final Latency TIME_TO_FIRST_CANDLE = Metrics.latency("startup_time_to_first_candle");
+    private static final AtomicBoolean FIRST_CANDLE = new AtomicBoolean();
+
+    static void warmedUp(long startNanos) {
+        WARMUP_LATENCY.recordSince(startNanos);
+    }
+
+    public static void started() {
+        log.info("Started {} ms after the start of the JVM", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * Records the time to the first candle, only the first call counts. Cheap enough to be called on every command.
+     */
+    public static void candleProcessed() {
+        if (!FIRST_CANDLE.get() && FIRST_CANDLE.compareAndSet(false, true)) {
+            var uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            TIME_TO_FIRST_CANDLE.record(TimeUnit.MILLISECONDS.toNanos(uptimeMillis));
+            log.info("First candle processed {} ms after the start of the JVM", uptimeMillis);
+        }
+    }
+}
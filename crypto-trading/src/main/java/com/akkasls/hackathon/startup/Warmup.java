@@ -0,0 +1,105 @@
+package com.akkasls.hackathon.startup;
+
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.candles.CandleAggregator;
+import com.akkasls.hackathon.entities.TraderEntity;
+import com.akkasls.hackathon.indicators.IndicatorRegistry;
+import com.akkasls.hackathon.indicators.Indicators;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs synthetic candles through the moving averages, the order logic and the serialization of their events before
+ * the service starts, so that the first candles after a scale out are processed by compiled code rather than
+ * interpreted. Moving averages come from a registry of their own rather than {@link IndicatorRegistry#shared()} and
+ * orders are applied outside of any entity, which is where metrics are recorded, so the warm-up leaves the state and
+ * metrics of the service untouched.
+ * <p>
+ * The number of candles per type of moving average is read from {@code WARMUP_CANDLES}, 0 skips the warm-up.
+ */
+@Slf4j
+public class Warmup {
+
+    private static final int DEFAULT_CANDLES = 20_000;
+    private static final long MINUTE = 60_000;
+
+    public static void run() {
+        var candles = Optional.ofNullable(System.getenv("WARMUP_CANDLES"))
+                .filter(value -> !value.isBlank())
+                .map(Integer::parseInt)
+                .orElse(DEFAULT_CANDLES);
+        if (candles > 0) {
+            var start = System.nanoTime();
+            var orders = run(candles);
+            Startup.warmedUp(start);
+            log.info("Warmed up with {} candles per moving average type ({} orders) in {} ms", candles, orders,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return the number of orders placed, so that the work cannot be optimised away.
+     */
+    @SneakyThrows
+    public static int run(int candles) {
+        var registry = new IndicatorRegistry();
+        var aggregator = new CandleAggregator("5m");
+        var orders = 0;
+        for (var maType : Indicators.movingAverageTypes()) {
+            var state = TraderState.newBuilder()
+                    .setTraderId("warmup")
+                    .setBaseAsset("BTC")
+                    .setQuoteAsset("EUR")
+                    .setInterval("1m")
+                    .setMaType(maType)
+                    .setShortMaPeriod(5)
+                    .setLongMaPeriod(20)
+                    .setBaseBalance(1e300)
+                    .setQuoteBalance(1e300)
+                    .setThreshold(0.001)
+                    .build();
+            var shortMa = registry.subscribe("warmup", "BTC/EUR", "1m", maType, 5);
+            var longMa = registry.subscribe("warmup", "BTC/EUR", "1m", maType, 20);
+            var currentShortMa = 0.0;
+            var currentLongMa = 0.0;
+            for (int i = 0; i < candles; i++) {
+                var candle = CandleStick.newBuilder()
+                        .setTime((i + 1) * MINUTE - 1)
+                        .setClosingPrice(100 + 20 * Math.sin(i / 10.0))
+                        .build();
+                aggregator.add(List.of(candle));
+                var updatedShortMa = shortMa.valueAt(candle.getTime(), candle.getClosingPrice());
+                var updatedLongMa = longMa.valueAt(candle.getTime(), candle.getClosingPrice());
+                if (Double.isNaN(updatedShortMa) || Double.isNaN(updatedLongMa)) {
+                    continue;
+                }
+                MovingAverageUpdated.parseFrom(MovingAverageUpdated.newBuilder()
+                        .setPeriod(5)
+                        .setValue(updatedShortMa)
+                        .setTime(candle.getTime())
+                        .setObservation(candle.getClosingPrice())
+                        .setType(maType)
+                        .build()
+                        .toByteArray());
+                var maybeOrder = TraderEntity.placeOrder(state, candle.getTime(), candle.getClosingPrice(),
+                        currentShortMa, currentLongMa, updatedShortMa, updatedLongMa);
+                if (maybeOrder.isPresent()) {
+                    var order = OrderPlaced.parseFrom(maybeOrder.get().toByteArray());
+                    state = order.getType().equals("BUY")
+                            ? TraderEntity.buy(state, order.getQuantity(), order.getExchangeRate())
+                            : TraderEntity.sell(state, order.getQuantity(), order.getExchangeRate());
+                    orders++;
+                }
+                currentShortMa = updatedShortMa;
+                currentLongMa = updatedLongMa;
+            }
+        }
+        return orders;
+    }
+}
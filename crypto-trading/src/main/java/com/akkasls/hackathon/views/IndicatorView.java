@@ -0,0 +1,19 @@
+package com.akkasls.hackathon.views;
+
+import com.akkaserverless.javasdk.view.UpdateHandler;
+import com.akkaserverless.javasdk.view.View;
+import com.akkasls.hackathon.Indicator;
+import com.akkasls.hackathon.IndicatorUpdated;
+
+/**
+ * One row per moving average of a market, queried by test run and symbol together with type and period range or
+ * update time.
+ */
+@View
+public class IndicatorView {
+
+    @UpdateHandler
+    public Indicator processIndicatorUpdated(IndicatorUpdated event) {
+        return event.getIndicator();
+    }
+}
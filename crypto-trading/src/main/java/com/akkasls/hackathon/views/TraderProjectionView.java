@@ -0,0 +1,197 @@
+package com.akkasls.hackathon.views;
+
+import com.akkaserverless.javasdk.view.UpdateHandler;
+import com.akkaserverless.javasdk.view.View;
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderBalance;
+import com.akkasls.hackathon.TraderProjection;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.entities.TraderEntity;
+import com.akkasls.hackathon.metrics.Metrics;
+import com.akkasls.hackathon.metrics.Metrics.Latency;
+import com.akkasls.hackathon.metrics.SampledLogger;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies each traders event once to a single row per trader, holding its state, balance and moving averages, which
+ * the traders, balances and moving averages queries all read from.
+ * <p>
+ * Updates are plain functions of the event and the current row, also used to replay events offline. Rows whose
+ * balances changed are stamped with the wall clock time of the change, which the balance updates query pages on:
+ * unlike the time of the candles, it does not depend on how far apart the traders of a market are. The handlers
+ * record how long each update takes and how far behind the candles the view is: the time between the close of the
+ * candle an event was emitted for and its update, so only meaningful for live candles, historical ones show up as
+ * their age.
+ */
+@Slf4j
+@View
+public class TraderProjectionView {
+
+    private static final SampledLogger SAMPLED_LOG = new SampledLogger(log, Duration.ofSeconds(10));
+
+    private static final Latency TRADER_ADDED_LATENCY =
+            Metrics.latency("view_update", "view", "traderProjection", "event", "TraderAdded");
+    private static final Latency MOVING_AVERAGE_UPDATED_LATENCY =
+            Metrics.latency("view_update", "view", "traderProjection", "event", "MovingAverageUpdated");
+    private static final Latency ORDER_PLACED_LATENCY =
+            Metrics.latency("view_update", "view", "traderProjection", "event", "OrderPlaced");
+    private static final Latency MOVING_AVERAGE_UPDATED_LAG =
+            Metrics.latency("view_lag", "view", "traderProjection", "event", "MovingAverageUpdated");
+    private static final Latency ORDER_PLACED_LAG =
+            Metrics.latency("view_lag", "view", "traderProjection", "event", "OrderPlaced");
+
+    @UpdateHandler
+    public TraderProjection processTraderAdded(TraderAdded event) {
+        var start = System.nanoTime();
+        var projection = traderAdded(event, System.currentTimeMillis());
+        TRADER_ADDED_LATENCY.recordSince(start);
+        return projection;
+    }
+
+    @UpdateHandler
+    public TraderProjection processMovingAverageUpdated(MovingAverageUpdated event, TraderProjection state) {
+        var start = System.nanoTime();
+        var projection = movingAverageUpdated(event, state);
+        MOVING_AVERAGE_UPDATED_LATENCY.recordSince(start);
+        recordLag(MOVING_AVERAGE_UPDATED_LAG, event.getTime());
+        return projection;
+    }
+
+    @UpdateHandler
+    public TraderProjection processOrderPlaced(OrderPlaced event, TraderProjection state) {
+        var start = System.nanoTime();
+        var projection = orderPlaced(event, state, System.currentTimeMillis());
+        ORDER_PLACED_LATENCY.recordSince(start);
+        recordLag(ORDER_PLACED_LAG, event.getTime());
+        return projection;
+    }
+
+    private static void recordLag(Latency lag, long candleTime) {
+        lag.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - candleTime));
+    }
+
+    public static TraderProjection traderAdded(TraderAdded event) {
+        return traderAdded(event, 0);
+    }
+
+    /**
+     * @param appliedAt wall clock time of the update.
+     */
+    public static TraderProjection traderAdded(TraderAdded event, long appliedAt) {
+        var trader = event.getTrader();
+        return TraderProjection.newBuilder()
+                .setTraderId(trader.getTraderId())
+                .setTestRunId(trader.getTestRunId())
+                .setBaseAsset(trader.getBaseAsset())
+                .setQuoteAsset(trader.getQuoteAsset())
+                .setShortMaPeriod(trader.getShortMaPeriod())
+                .setLongMaPeriod(trader.getLongMaPeriod())
+                .setBaseBalance(trader.getBaseBalance())
+                .setQuoteBalance(trader.getQuoteBalance())
+                .setMaType(trader.getMaType())
+                .setShortMaValue(trader.getShortMaValue())
+                .setLongMaValue(trader.getLongMaValue())
+                .setThreshold(trader.getThreshold())
+                .setInterval(trader.getInterval())
+                .setRejectedOrders(trader.getRejectedOrders())
+                .setMaUpdatesEvery(trader.getMaUpdatesEvery())
+                .setLastUpdatedAt(Instant.EPOCH.toEpochMilli())
+                .setBuyOrders(0)
+                .setSellOrders(0)
+                .setTime(-1)
+                .setSymbol(trader.getBaseAsset() + "/" + trader.getQuoteAsset())
+                .setAppliedAt(appliedAt)
+                .build();
+    }
+
+    public static TraderProjection movingAverageUpdated(MovingAverageUpdated event, TraderProjection state) {
+        var builder = state.toBuilder().setTime(event.getTime());
+        if (event.getPeriod() == state.getShortMaPeriod()) {
+            builder.setShortMaValue(event.getValue());
+        }
+        if (event.getPeriod() == state.getLongMaPeriod()) {
+            builder.setLongMaValue(event.getValue());
+        }
+        return builder.build();
+    }
+
+    public static TraderProjection orderPlaced(OrderPlaced event, TraderProjection state) {
+        return orderPlaced(event, state, state.getAppliedAt());
+    }
+
+    /**
+     * @param appliedAt wall clock time of the update, only set if the order was filled.
+     */
+    public static TraderProjection orderPlaced(OrderPlaced event, TraderProjection state, long appliedAt) {
+        var trader = toTraderState(state);
+        TraderState updated;
+        switch (event.getType()) {
+            case "BUY":
+                updated = TraderEntity.buy(trader, event.getQuantity(), event.getExchangeRate());
+                break;
+            case "SELL":
+                updated = TraderEntity.sell(trader, event.getQuantity(), event.getExchangeRate());
+                break;
+            default:
+                SAMPLED_LOG.warn("Unknown order type '{}'", event.getType());
+                return state;
+        }
+        var builder = state.toBuilder()
+                .setBaseBalance(updated.getBaseBalance())
+                .setQuoteBalance(updated.getQuoteBalance())
+                .setRejectedOrders(updated.getRejectedOrders());
+        if (updated.getRejectedOrders() == trader.getRejectedOrders()) {
+            builder.setExchangeRate(event.getExchangeRate())
+                    .setLastUpdatedAt(event.getTime())
+                    .setAppliedAt(appliedAt);
+            if (event.getType().equals("BUY")) {
+                builder.setBuyOrders(state.getBuyOrders() + 1);
+            } else {
+                builder.setSellOrders(state.getSellOrders() + 1);
+            }
+        }
+        return builder.build();
+    }
+
+    public static TraderState toTraderState(TraderProjection projection) {
+        return TraderState.newBuilder()
+                .setTraderId(projection.getTraderId())
+                .setTestRunId(projection.getTestRunId())
+                .setBaseAsset(projection.getBaseAsset())
+                .setQuoteAsset(projection.getQuoteAsset())
+                .setShortMaPeriod(projection.getShortMaPeriod())
+                .setLongMaPeriod(projection.getLongMaPeriod())
+                .setBaseBalance(projection.getBaseBalance())
+                .setQuoteBalance(projection.getQuoteBalance())
+                .setMaType(projection.getMaType())
+                .setShortMaValue(projection.getShortMaValue())
+                .setLongMaValue(projection.getLongMaValue())
+                .setThreshold(projection.getThreshold())
+                .setInterval(projection.getInterval())
+                .setRejectedOrders(projection.getRejectedOrders())
+                .setMaUpdatesEvery(projection.getMaUpdatesEvery())
+                .build();
+    }
+
+    public static TraderBalance toTraderBalance(TraderProjection projection) {
+        return TraderBalance.newBuilder()
+                .setTraderId(projection.getTraderId())
+                .setTestRunId(projection.getTestRunId())
+                .setBaseAsset(projection.getBaseAsset())
+                .setQuoteAsset(projection.getQuoteAsset())
+                .setBaseBalance(projection.getBaseBalance())
+                .setQuoteBalance(projection.getQuoteBalance())
+                .setExchangeRate(projection.getExchangeRate())
+                .setLastUpdatedAt(projection.getLastUpdatedAt())
+                .setBuyOrders(projection.getBuyOrders())
+                .setSellOrders(projection.getSellOrders())
+                .setAppliedAt(projection.getAppliedAt())
+                .build();
+    }
+}
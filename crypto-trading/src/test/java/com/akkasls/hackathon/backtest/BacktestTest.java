@@ -0,0 +1,125 @@
+package com.akkasls.hackathon.backtest;
+
+
+import com.akkasls.hackathon.TraderBalance;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.candles.CandleSeries;
+import com.akkasls.hackathon.views.TraderProjectionView;
+import com.google.protobuf.Message;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class BacktestTest {
+
+    private final CandleSeries candles = new CandleSeries(
+            IntStream.range(0, 200).mapToLong(i -> i * 300_000L).toArray(),
+            IntStream.range(0, 200).mapToDouble(i -> 100 + 20 * Math.sin(i / 10.0)).toArray()
+    );
+
+    private final TraderState trader = TraderState.newBuilder()
+            .setTraderId("BTCEUR_5m_simple_5_20_0.01")
+            .setTestRunId("test")
+            .setBaseAsset("BTC")
+            .setQuoteAsset("EUR")
+            .setMaType("simple")
+            .setShortMaPeriod(5)
+            .setLongMaPeriod(20)
+            .setBaseBalance(1)
+            .setQuoteBalance(1000)
+            .setThreshold(0.01)
+            .build();
+
+    @Test
+    public void shouldPlaceOrdersOnCrossovers() {
+        var balance = new Backtest(candles).run(trader);
+
+        assertThat(balance.getTraderId()).isEqualTo(trader.getTraderId());
+        assertThat(balance.getTestRunId()).isEqualTo("test");
+        assertThat(balance.getBuyOrders()).isPositive();
+        assertThat(balance.getSellOrders()).isPositive();
+        assertThat(balance.getBaseBalance()).isNotEqualTo(trader.getBaseBalance());
+    }
+
+    @Test
+    public void shouldGiveSameResultsWhenRunInParallel() {
+        var backtest = new Backtest(candles);
+        var other = trader.toBuilder().setTraderId("other").setMaType("exponential").build();
+
+        var balances = backtest.run(List.of(trader, other, trader));
+
+        assertThat(balances).hasSize(3);
+        assertThat(balances.get(0)).isEqualTo(balances.get(2)).isEqualTo(backtest.run(trader));
+        assertThat(balances.get(1).getTraderId()).isEqualTo("other");
+    }
+
+    @Test
+    public void shouldGiveSameResultsWithPrecomputedMovingAverages() {
+        var traders = List.of(trader, trader.toBuilder()
+                .setTraderId("other")
+                .setMaType("exponential")
+                .setLongMaPeriod(30)
+                .build());
+
+        var expected = new Backtest(candles).run(traders);
+        var actual = new Backtest(candles).precompute(traders.stream()).run(traders);
+
+        for (int i = 0; i < traders.size(); i++) {
+            assertThat(actual.get(i).getBuyOrders()).isEqualTo(expected.get(i).getBuyOrders());
+            assertThat(actual.get(i).getSellOrders()).isEqualTo(expected.get(i).getSellOrders());
+            assertThat(actual.get(i).getBaseBalance()).isCloseTo(expected.get(i).getBaseBalance(), within(1e-9));
+            assertThat(actual.get(i).getQuoteBalance()).isCloseTo(expected.get(i).getQuoteBalance(), within(1e-6));
+        }
+    }
+
+    @Test
+    public void shouldRebuildTheSameBalancesFromTheEventsRecorded() throws IOException {
+        var backtest = new Backtest(candles);
+        var other = trader.toBuilder().setTraderId("other").setMaType("exponential").build();
+        var out = new ByteArrayOutputStream();
+
+        var balances = new ArrayList<TraderBalance>();
+        try (var log = new EventLog.Writer(out)) {
+            BacktestRunner.recorded(backtest, Stream.of(trader, other)).forEachOrdered(run -> {
+                balances.add(run.getKey());
+                run.getValue().forEach(event -> write(log, run.getKey().getTraderId(), event));
+            });
+        }
+        var rebuilt = new ProjectionRebuild(2).rebuild(EventLog.read(new ByteArrayInputStream(out.toByteArray())));
+
+        assertThat(balances).containsExactly(backtest.run(trader), backtest.run(other));
+        for (var balance : balances) {
+            assertThat(TraderProjectionView.toTraderBalance(rebuilt.get(balance.getTraderId()))).isEqualTo(balance);
+        }
+    }
+
+    @SneakyThrows
+    private static void write(EventLog.Writer log, String traderId, Message event) {
+        log.write(traderId, event);
+    }
+
+    @Test
+    public void shouldSweepTheWholeGrid() {
+        assertThat(BacktestRunner.grid("test", "BTC", "EUR", "5m").count()).isEqualTo(2 * 15 * 90 * 20);
+    }
+
+    @Test
+    public void shouldPrecomputeEveryPeriodOfTheGrid() {
+        var periods = BacktestRunner.grid("test", "BTC", "EUR", "5m")
+                .flatMap(trader -> Stream.of(trader.getShortMaPeriod(), trader.getLongMaPeriod()))
+                .collect(Collectors.toSet());
+
+        assertThat(BacktestRunner.periods()).containsExactlyInAnyOrderElementsOf(periods);
+    }
+}
@@ -0,0 +1,93 @@
+package com.akkasls.hackathon.backtest;
+
+
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.TraderAdded;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.views.TraderProjectionView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectionRebuildTest {
+
+    private final TraderState trader = TraderState.newBuilder()
+            .setTestRunId("test")
+            .setBaseAsset("BTC")
+            .setQuoteAsset("EUR")
+            .setInterval("5m")
+            .setMaType("simple")
+            .setShortMaPeriod(5)
+            .setLongMaPeriod(20)
+            .setBaseBalance(1)
+            .setQuoteBalance(1000)
+            .setThreshold(0.01)
+            .build();
+
+    @Test
+    public void shouldRebuildTheSameProjectionsWhateverThePartitions() throws IOException {
+        var events = record(100);
+
+        var sequential = new ProjectionRebuild(1).rebuild(EventLog.read(new ByteArrayInputStream(events)));
+        var parallel = new ProjectionRebuild(4).rebuild(EventLog.read(new ByteArrayInputStream(events)));
+
+        assertThat(sequential).hasSize(100).isEqualTo(parallel);
+        var projection = sequential.get("trader-7");
+        assertThat(projection.getBuyOrders()).isEqualTo(10);
+        assertThat(projection.getSellOrders()).isEqualTo(10);
+        assertThat(projection.getShortMaValue()).isEqualTo(119);
+        assertThat(projection.getLongMaValue()).isEqualTo(99);
+        assertThat(TraderProjectionView.toTraderState(projection).getTraderId()).isEqualTo("trader-7");
+    }
+
+    @Test
+    public void shouldSkipEventsAlreadyReplayed() throws IOException {
+        var events = record(1);
+        var duplicated = new ByteArrayOutputStream();
+        duplicated.write(events);
+        duplicated.write(events);
+
+        var rebuilt = new ProjectionRebuild(2)
+                .rebuild(EventLog.read(new ByteArrayInputStream(duplicated.toByteArray())));
+
+        assertThat(rebuilt.get("trader-0").getBuyOrders()).isEqualTo(10);
+    }
+
+    /**
+     * @return for each trader, candles alternating a buy and a sell order, with the events of traders interleaved.
+     */
+    private byte[] record(int traders) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var log = new EventLog.Writer(out)) {
+            for (int t = 0; t < traders; t++) {
+                var traderId = "trader-" + t;
+                log.write(traderId, TraderAdded.newBuilder()
+                        .setTrader(trader.toBuilder().setTraderId(traderId))
+                        .build());
+            }
+            for (int i = 0; i < 20; i++) {
+                for (int t = 0; t < traders; t++) {
+                    var traderId = "trader-" + t;
+                    var time = i * 300_000L;
+                    log.write(traderId, MovingAverageUpdated.newBuilder()
+                            .setPeriod(5).setValue(100 + i).setTime(time).setObservation(100 + i).build());
+                    log.write(traderId, MovingAverageUpdated.newBuilder()
+                            .setPeriod(20).setValue(80 + i).setTime(time).setObservation(100 + i).build());
+                    log.write(traderId, OrderPlaced.newBuilder()
+                            .setTraderId(traderId)
+                            .setTime(time)
+                            .setType(i % 2 == 0 ? "BUY" : "SELL")
+                            .setQuantity(0.1)
+                            .setExchangeRate(100 + i)
+                            .build());
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+}
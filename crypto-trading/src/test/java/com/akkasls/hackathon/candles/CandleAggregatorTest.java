@@ -0,0 +1,124 @@
+package com.akkasls.hackathon.candles;
+
+
+import com.akkasls.hackathon.CandleStick;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CandleAggregatorTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void shouldParseIntervals() {
+        assertThat(CandleAggregator.intervalMillis("1m")).isEqualTo(MINUTE);
+        assertThat(CandleAggregator.intervalMillis("15m")).isEqualTo(15 * MINUTE);
+        assertThat(CandleAggregator.intervalMillis("4h")).isEqualTo(240 * MINUTE);
+        assertThat(CandleAggregator.intervalMillis("1d")).isEqualTo(1440 * MINUTE);
+        assertThatThrownBy(() -> CandleAggregator.intervalMillis("5")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CandleAggregator.intervalMillis("xm")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldAggregateOpenHighLowCloseAndVolume() {
+        var aggregator = new CandleAggregator("5m");
+
+        var completed = aggregator.add(List.of(
+                candle(1, 10, 12, 9, 11, 1),
+                candle(2, 11, 15, 10, 14, 2),
+                candle(3, 14, 14, 8, 9, 3),
+                candle(4, 9, 10, 9, 10, 4),
+                candle(5, 10, 11, 10, 11, 5),
+                candle(6, 11, 11, 11, 11, 6)));
+
+        assertThat(completed).containsExactly(CandleStick.newBuilder()
+                .setTime(5 * MINUTE - 1)
+                .setOpenPrice(10)
+                .setHighPrice(15)
+                .setLowPrice(8)
+                .setClosingPrice(11)
+                .setVolume(15)
+                .build());
+        assertThat(aggregator.pending()).hasValue(candle(6, 11, 11, 11, 11, 6));
+    }
+
+    @Test
+    public void shouldCompleteCandlesWithMissingEnds() {
+        var aggregator = new CandleAggregator("5m");
+
+        var completed = aggregator.add(List.of(candle(1, 10), candle(2, 11), candle(7, 12), candle(10, 13)));
+
+        assertThat(completed).extracting(CandleStick::getTime).containsExactly(5 * MINUTE - 1, 10 * MINUTE - 1);
+        assertThat(completed).extracting(CandleStick::getClosingPrice).containsExactly(11.0, 13.0);
+        assertThat(completed.get(0).getOpenPrice()).isEqualTo(10);
+        assertThat(aggregator.pending()).isEmpty();
+    }
+
+    @Test
+    public void shouldIgnoreCandlesAlreadyAdded() {
+        var aggregator = new CandleAggregator("5m");
+        aggregator.add(List.of(candle(1, 10), candle(2, 11)));
+
+        var completed = aggregator.add(List.of(candle(2, 11), candle(3, 12), candle(4, 13), candle(5, 14)));
+
+        assertThat(completed).hasSize(1);
+        assertThat(completed.get(0).getHighPrice()).isEqualTo(14);
+        assertThat(completed.get(0).getLowPrice()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldNotReopenCompletedCandles() {
+        var aggregator = new CandleAggregator("5m");
+        aggregator.add(List.of(candle(1, 10), candle(2, 11), candle(3, 12), candle(4, 13), candle(5, 14)));
+
+        // re-sent candles of the completed bucket, with and without another one pending
+        assertThat(aggregator.add(List.of(candle(3, 20), candle(5, 20)))).isEmpty();
+        assertThat(aggregator.pending()).isEmpty();
+        aggregator.add(List.of(candle(6, 15)));
+        assertThat(aggregator.add(List.of(candle(4, 20), candle(5, 20)))).isEmpty();
+        assertThat(aggregator.pending()).hasValue(candle(6, 15, 15, 15, 15, 0));
+        assertThat(aggregator.lastTime()).isEqualTo(6 * MINUTE - 1);
+    }
+
+    @Test
+    public void shouldResumeFromLastTimeWithoutPendingCandle() {
+        var aggregator = new CandleAggregator("5m");
+        aggregator.add(List.of(candle(1, 10), candle(2, 11), candle(3, 12), candle(4, 13), candle(5, 14)));
+        var resumed = new CandleAggregator("5m", null, aggregator.lastTime());
+
+        assertThat(resumed.add(List.of(candle(5, 20)))).isEmpty();
+        assertThat(resumed.add(List.of(candle(6, 15), candle(10, 16)))).hasSize(1);
+    }
+
+    @Test
+    public void shouldResumeFromPendingCandle() {
+        var aggregator = new CandleAggregator("5m");
+        aggregator.add(List.of(candle(1, 10), candle(2, 11)));
+        var resumed = new CandleAggregator("5m", aggregator.pending().orElseThrow(), aggregator.lastTime());
+
+        var candles = List.of(candle(3, 12), candle(4, 9), candle(5, 14));
+        assertThat(resumed.add(candles)).isEqualTo(aggregator.add(candles));
+    }
+
+    /**
+     * @return the candle closing at the end of the given minute.
+     */
+    private static CandleStick candle(int minute, double open, double high, double low, double close, double volume) {
+        return CandleStick.newBuilder()
+                .setTime(minute * MINUTE - 1)
+                .setOpenPrice(open)
+                .setHighPrice(high)
+                .setLowPrice(low)
+                .setClosingPrice(close)
+                .setVolume(volume)
+                .build();
+    }
+
+    private static CandleStick candle(int minute, double close) {
+        return CandleStick.newBuilder().setTime(minute * MINUTE - 1).setClosingPrice(close).build();
+    }
+}
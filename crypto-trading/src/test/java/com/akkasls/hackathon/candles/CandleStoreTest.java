@@ -0,0 +1,101 @@
+package com.akkasls.hackathon.candles;
+
+
+import com.akkasls.hackathon.CandleStick;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandleStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void shouldAppendOnlyMoreRecentCandles() throws IOException {
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            var appended = store.append(new CandleSeries(new long[]{1, 2, 3, 3, 2, 4}, new double[]{10, 20, 30, 31, 21, 40}));
+
+            assertThat(appended).isEqualTo(4);
+            assertThat(store.append(5, 50)).isTrue();
+            assertThat(store.append(5, 51)).isFalse();
+            assertThat(store.size()).isEqualTo(5);
+            assertThat(store.lastTime()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void shouldQueryRangesByTime() throws IOException {
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            store.append(new CandleSeries(new long[]{10, 20, 30, 40}, new double[]{1, 2, 3, 4}));
+
+            var range = store.range(15, 40);
+            assertThat(range.size()).isEqualTo(2);
+            assertThat(range.time(0)).isEqualTo(20);
+            assertThat(range.closingPrice(1)).isEqualTo(3);
+            assertThat(store.range(50, 60).size()).isZero();
+            assertThat(store.all().size()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    public void shouldReopenExistingStore() throws IOException {
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            store.append(new CandleSeries(new long[]{10, 20}, new double[]{1, 2}));
+        }
+
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.lastTime()).isEqualTo(20);
+            store.append(30, 3);
+            assertThat(store.all().closingPrice(2)).isEqualTo(3);
+        }
+        try (var store = CandleStore.open(root, "BTCEUR", "1m")) {
+            assertThat(store.size()).isZero();
+        }
+    }
+
+    @Test
+    public void shouldStoreOpenHighLowCloseAndVolume() throws IOException {
+        var candle = CandleStick.newBuilder()
+                .setTime(10)
+                .setOpenPrice(1)
+                .setHighPrice(3)
+                .setLowPrice(0.5)
+                .setClosingPrice(2)
+                .setVolume(7)
+                .build();
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            assertThat(store.append(candle)).isTrue();
+        }
+
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            assertThat(store.all().candle(0)).isEqualTo(candle);
+        }
+    }
+
+    @Test
+    public void shouldFillColumnsMissingFromStoresWrittenBeforeThem() throws IOException {
+        var directory = Files.createDirectories(root.resolve("BTCEUR").resolve("5m"));
+        Files.write(directory.resolve("time.bin"), ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(10).putLong(20).array());
+        Files.write(directory.resolve("close.bin"), ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .putDouble(1).putDouble(2).array());
+
+        try (var store = CandleStore.open(root, "BTCEUR", "5m")) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.all().candle(1))
+                    .isEqualTo(CandleStick.newBuilder().setTime(20).setClosingPrice(2).build());
+            store.append(CandleStick.newBuilder().setTime(30).setHighPrice(4).setClosingPrice(3).setVolume(5).build());
+            assertThat(store.all().highPrice(2)).isEqualTo(4);
+            assertThat(store.all().volume(2)).isEqualTo(5);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.akkasls.hackathon.entities;
+
+
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.GetIndicatorCommand;
+import com.akkasls.hackathon.IndicatorSpec;
+import com.akkasls.hackathon.IndicatorUpdated;
+import com.akkasls.hackathon.UpdateIndicatorCommand;
+import com.akkasls.hackathon.indicators.IndicatorRegistry;
+import com.akkasls.hackathon.indicators.MovingAverages;
+import com.akkasls.hackathon.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class IndicatorEntityTest {
+
+    private static final long FIVE_MINUTES = 300_000;
+
+    // the registry of shared moving averages lives as long as the JVM, each test gets a test run of its own
+    private final String testRunId = UUID.randomUUID().toString();
+    private final String indicatorId = IndicatorEntity.indicatorId(testRunId, "BTC/EUR", "5m", "simple", 5);
+
+    @Test
+    public void shouldUpdateWithNewerCandlesOnly() {
+        var entity = new IndicatorEntity(indicatorId);
+        var context = new TestCommandContext(entity);
+
+        entity.updateIndicator(updateIndicator(testRunId, candles(0, 10)), context.context());
+        entity.updateIndicator(updateIndicator(testRunId, candles(5, 10)), context.context());
+        entity.updateIndicator(updateIndicator(testRunId, candles(0, 5)), context.context());
+
+        var events = context.events(IndicatorUpdated.class);
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getTimesList()).isEqualTo(times(candles(0, 10)));
+        assertThat(events.get(1).getTimesList()).isEqualTo(times(candles(10, 5)));
+        var indicator = entity.getIndicator(GetIndicatorCommand.getDefaultInstance());
+        assertThat(indicator.getTime()).isEqualTo(15 * FIVE_MINUTES - 1);
+        assertThat(indicator.getValue()).isEqualTo(expected(candles(0, 15)));
+        assertThat(indicator.getIndicatorId()).isEqualTo(indicatorId);
+        assertThat(indicator.getTestRunId()).isEqualTo(testRunId);
+    }
+
+    @Test
+    public void shouldNotBeReadyBeforeAFullPeriod() {
+        var entity = new IndicatorEntity(indicatorId);
+        var context = new TestCommandContext(entity);
+
+        entity.updateIndicator(updateIndicator(testRunId, candles(0, 3)), context.context());
+        entity.updateIndicator(updateIndicator(testRunId, candles(2, 2)), context.context());
+
+        assertThat(context.events()).isEmpty();
+        assertThat(entity.getIndicator(GetIndicatorCommand.getDefaultInstance()).getIndicatorId()).isEmpty();
+
+        entity.updateIndicator(updateIndicator(testRunId, candles(4, 2)), context.context());
+
+        // the candles it was warmed up with come along with its first value
+        var events = context.events(IndicatorUpdated.class);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getTimesList()).isEqualTo(times(candles(0, 6)));
+        assertThat(events.get(0).getIndicator().getValue()).isEqualTo(expected(candles(0, 6)));
+    }
+
+    @Test
+    public void shouldStaySharedOverBatchesLongerThanItsHistory() {
+        var behind = Metrics.counter("shared_moving_averages_behind_total");
+        var before = behind.sum();
+        var entity = new IndicatorEntity(indicatorId);
+        var context = new TestCommandContext(entity);
+
+        for (int from = 0; from < 300; from += 100) {
+            entity.updateIndicator(updateIndicator(testRunId, candles(from, 100)), context.context());
+        }
+
+        var events = context.events(IndicatorUpdated.class);
+        assertThat(events).hasSize(3);
+        for (int i = 0; i < events.size(); i++) {
+            assertThat(events.get(i).getIndicator().getValue()).isEqualTo(expected(candles(0, 100 * (i + 1))));
+        }
+        assertThat(behind.sum()).isEqualTo(before);
+        // a trader of the same market reads the values of the indicator
+        var trader = IndicatorRegistry.shared()
+                .subscribe(testRunId, "BTC/EUR", "5m", "simple", 5);
+        var last = candles(299, 1).get(0);
+        assertThat(trader.valueAt(last.getTime(), last.getClosingPrice())).isEqualTo(expected(candles(0, 300)));
+        assertThat(trader.isPrivate()).isFalse();
+    }
+
+    @Test
+    public void shouldResumeFromSnapshot() {
+        var entity = new IndicatorEntity(indicatorId);
+        var context = new TestCommandContext(entity);
+        entity.updateIndicator(updateIndicator(testRunId, candles(0, 10)), context.context());
+
+        // restored in another test run, so without the shared moving average of the first one
+        var otherRunId = UUID.randomUUID().toString();
+        var snapshot = entity.snapshot();
+        var restored = new IndicatorEntity(indicatorId);
+        restored.handleSnapshot(snapshot.toBuilder()
+                .setIndicator(snapshot.getIndicator().toBuilder().setTestRunId(otherRunId))
+                .build());
+        restored.updateIndicator(updateIndicator(otherRunId, candles(10, 5)),
+                new TestCommandContext(restored).context());
+
+        assertThat(restored.getIndicator(GetIndicatorCommand.getDefaultInstance()).getValue())
+                .isCloseTo(expected(candles(0, 15)), within(1e-9));
+    }
+
+    @Test
+    public void shouldResumeFromReplayedEvents() {
+        var entity = new IndicatorEntity(indicatorId);
+        var context = new TestCommandContext(entity);
+        entity.updateIndicator(updateIndicator(testRunId, candles(0, 3)), context.context());
+        entity.updateIndicator(updateIndicator(testRunId, candles(3, 4)), context.context());
+
+        var otherRunId = UUID.randomUUID().toString();
+        var replayed = new IndicatorEntity(indicatorId);
+        var replayedContext = new TestCommandContext(replayed);
+        context.events(IndicatorUpdated.class).forEach(event -> replayedContext.replay(event.toBuilder()
+                .setIndicator(event.getIndicator().toBuilder().setTestRunId(otherRunId))
+                .build()));
+        replayed.updateIndicator(updateIndicator(otherRunId, candles(7, 5)), replayedContext.context());
+
+        assertThat(replayed.getIndicator(GetIndicatorCommand.getDefaultInstance()).getValue())
+                .isEqualTo(expected(candles(0, 12)));
+    }
+
+    private UpdateIndicatorCommand updateIndicator(String testRunId, List<CandleStick> candles) {
+        return UpdateIndicatorCommand.newBuilder()
+                .setIndicatorId(indicatorId)
+                .setSymbol("BTC/EUR")
+                .setInterval("5m")
+                .setTestRunId(testRunId)
+                .setSpec(IndicatorSpec.newBuilder().setMaType("simple").setPeriod(5))
+                .addAllCandles(candles)
+                .build();
+    }
+
+    private static double expected(List<CandleStick> candles) {
+        var movingAverage = MovingAverages.simple(5);
+        candles.forEach(candle -> movingAverage.updateWith(candle.getClosingPrice()));
+        return movingAverage.getValue();
+    }
+
+    private static List<Long> times(List<CandleStick> candles) {
+        var times = new ArrayList<Long>();
+        candles.forEach(candle -> times.add(candle.getTime()));
+        return times;
+    }
+
+    private static List<CandleStick> candles(int from, int count) {
+        var candles = new ArrayList<CandleStick>();
+        for (int i = from; i < from + count; i++) {
+            candles.add(CandleStick.newBuilder()
+                    .setTime((i + 1) * FIVE_MINUTES - 1)
+                    .setClosingPrice(30_000 + 1_000 * Math.sin(i / 8.0))
+                    .build());
+        }
+        return candles;
+    }
+}
@@ -0,0 +1,233 @@
+package com.akkasls.hackathon.entities;
+
+
+import com.akkasls.hackathon.AddCandlesCommand;
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.GetMarketCommand;
+import com.akkasls.hackathon.IndicatorSpec;
+import com.akkasls.hackathon.PublishCandlesCommand;
+import com.akkasls.hackathon.RegisterTraderCommand;
+import com.akkasls.hackathon.SubscribeTimeframeCommand;
+import com.akkasls.hackathon.TraderRegistered;
+import com.akkasls.hackathon.UpdateIndicatorCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketEntityTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final String testRunId = UUID.randomUUID().toString();
+    private final String marketId = MarketEntity.marketId(testRunId, "BTC/EUR", "5m");
+    private final String baseMarketId = MarketEntity.baseMarketId(testRunId, "BTC/EUR");
+
+    @Test
+    public void shouldRegisterTradersOnce() {
+        var market = new MarketEntity(marketId);
+        var context = new TestCommandContext(market);
+
+        market.registerTrader(registerTrader("trader-1", "5m", 5, 20), context.context());
+        market.registerTrader(registerTrader("trader-1", "5m", 5, 20), context.context());
+        market.registerTrader(registerTrader("trader-2", "5m", 5, 20), context.context());
+
+        assertThat(context.events(TraderRegistered.class)).extracting(TraderRegistered::getTraderId)
+                .containsExactly("trader-1", "trader-2");
+        var state = market.getMarket(GetMarketCommand.getDefaultInstance());
+        assertThat(state.getTraderIdsList()).containsExactly("trader-1", "trader-2");
+        assertThat(state.getIndicatorsList()).containsExactly(spec(5), spec(20));
+        assertThat(state.getTestRunId()).isEqualTo(testRunId);
+    }
+
+    @Test
+    public void shouldSubscribeToTheBaseMarketUnlessBaseInterval() {
+        var market = new MarketEntity(marketId);
+        var context = new TestCommandContext(market);
+        var baseMarket = new MarketEntity(baseMarketId);
+        var baseContext = new TestCommandContext(baseMarket);
+
+        market.registerTrader(registerTrader("trader-1", "5m", 5, 20), context.context());
+        baseMarket.registerTrader(registerTrader("trader-2", "1m", 5, 20), baseContext.context());
+
+        var subscriptions = context.effects("SubscribeTimeframe");
+        assertThat(subscriptions).hasSize(1);
+        // before any candle reaches the base market, for the first candles to be aggregated
+        assertThat(subscriptions.get(0).isSynchronous()).isTrue();
+        var command = (SubscribeTimeframeCommand) subscriptions.get(0).getMessage();
+        assertThat(command.getMarketId()).isEqualTo(baseMarketId);
+        assertThat(command.getInterval()).isEqualTo("5m");
+        assertThat(command.getTestRunId()).isEqualTo(testRunId);
+        assertThat(baseContext.effects("SubscribeTimeframe")).isEmpty();
+    }
+
+    @Test
+    public void shouldFanOutCandlesToEveryTraderAndOnceToEachMovingAverage() {
+        var market = new MarketEntity(marketId);
+        var context = new TestCommandContext(market);
+        market.registerTrader(registerTrader("trader-1", "5m", 5, 20), context.context());
+        market.registerTrader(registerTrader("trader-2", "5m", 5, 20), context.context());
+        market.registerTrader(registerTrader("trader-3", "5m", 5, 50), context.context());
+        context.clear();
+
+        var candles = candles(5, 15, 5);
+        market.publishCandles(publishCandles(marketId, candles), context.context());
+
+        var addCandles = context.effects("AddCandles");
+        assertThat(addCandles).extracting(effect -> ((AddCandlesCommand) effect.getMessage()).getTraderId())
+                .containsExactly("trader-1", "trader-2", "trader-3");
+        assertThat(addCandles).allMatch(TestCommandContext.Effect::isSynchronous);
+        assertThat(addCandles).allMatch(effect ->
+                ((AddCandlesCommand) effect.getMessage()).getCandlesList().equals(candles));
+        var updates = context.effects("UpdateIndicator").stream()
+                .map(effect -> (UpdateIndicatorCommand) effect.getMessage())
+                .collect(Collectors.toList());
+        assertThat(updates).extracting(UpdateIndicatorCommand::getSpec).containsExactly(spec(5), spec(20), spec(50));
+        assertThat(updates).extracting(UpdateIndicatorCommand::getIndicatorId).containsExactly(
+                IndicatorEntity.indicatorId(testRunId, "BTC/EUR", "5m", "simple", 5),
+                IndicatorEntity.indicatorId(testRunId, "BTC/EUR", "5m", "simple", 20),
+                IndicatorEntity.indicatorId(testRunId, "BTC/EUR", "5m", "simple", 50));
+        assertThat(updates).allMatch(update -> update.getCandlesList().equals(candles));
+    }
+
+    @Test
+    public void shouldPublishAggregatedCandlesToSubscribedMarkets() {
+        var baseMarket = subscribedBaseMarket();
+
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(1, 12, 1)),
+                baseMarket.context.context());
+
+        var published = baseMarket.published();
+        assertThat(published).extracting(CandleStick::getTime).containsExactly(5 * MINUTE - 1, 10 * MINUTE - 1);
+        assertThat(baseMarket.context.effects("PublishCandles")).allMatch(effect ->
+                ((PublishCandlesCommand) effect.getMessage()).getMarketId().equals(marketId));
+        assertThat(baseMarket.context.effects("PublishCandles")).allMatch(TestCommandContext.Effect::isSynchronous);
+        assertThat(baseMarket.entity.getMarket(GetMarketCommand.getDefaultInstance()).getTimeframes(0).getPending()
+                .getTime()).isEqualTo(12 * MINUTE - 1);
+    }
+
+    @Test
+    public void shouldIgnoreCandlesAlreadyAggregated() {
+        var baseMarket = subscribedBaseMarket();
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(1, 7, 1)),
+                baseMarket.context.context());
+        var pending = baseMarket.entity.getMarket(GetMarketCommand.getDefaultInstance()).getTimeframes(0);
+
+        // redelivered and out of order candles of the pending bucket and of the completed one
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(6, 7, 1)),
+                baseMarket.context.context());
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(6, 6, 1)),
+                baseMarket.context.context());
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(3, 5, 1)),
+                baseMarket.context.context());
+
+        assertThat(baseMarket.published()).extracting(CandleStick::getTime).containsExactly(5 * MINUTE - 1);
+        assertThat(baseMarket.entity.getMarket(GetMarketCommand.getDefaultInstance()).getTimeframes(0))
+                .isEqualTo(pending);
+    }
+
+    @Test
+    public void shouldNotReopenCompletedCandlesAfterRestart() {
+        var baseMarket = subscribedBaseMarket();
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(1, 5, 1)),
+                baseMarket.context.context());
+
+        var restored = new MarketEntity(baseMarketId);
+        restored.handleSnapshot(baseMarket.entity.snapshot());
+        var context = new TestCommandContext(restored);
+        restored.publishCandles(publishCandles(baseMarketId, candles(4, 5, 1)), context.context());
+
+        assertThat(baseMarket.published()).extracting(CandleStick::getTime).containsExactly(5 * MINUTE - 1);
+        assertThat(context.effects("PublishCandles")).isEmpty();
+        assertThat(restored.getMarket(GetMarketCommand.getDefaultInstance()).getTimeframes(0).getLastTime())
+                .isEqualTo(5 * MINUTE - 1);
+    }
+
+    @Test
+    public void shouldResumeAggregationFromSnapshot() {
+        var baseMarket = subscribedBaseMarket();
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(1, 7, 1)),
+                baseMarket.context.context());
+
+        var restored = new MarketEntity(baseMarketId);
+        restored.handleSnapshot(baseMarket.entity.snapshot());
+        var context = new TestCommandContext(restored);
+        restored.publishCandles(publishCandles(baseMarketId, candles(8, 10, 1)), context.context());
+        baseMarket.context.clear();
+        baseMarket.entity.publishCandles(publishCandles(baseMarketId, candles(8, 10, 1)),
+                baseMarket.context.context());
+
+        assertThat(restored.getMarket(GetMarketCommand.getDefaultInstance()))
+                .isEqualTo(baseMarket.entity.getMarket(GetMarketCommand.getDefaultInstance()));
+        assertThat(context.effects()).isEqualTo(baseMarket.context.effects());
+        assertThat(context.effects("AddCandles")).hasSize(1);
+    }
+
+    private Market subscribedBaseMarket() {
+        var market = new Market(new MarketEntity(baseMarketId));
+        market.entity.registerTrader(registerTrader("trader-1", "1m", 5, 20), market.context.context());
+        market.entity.subscribeTimeframe(SubscribeTimeframeCommand.newBuilder()
+                .setMarketId(baseMarketId)
+                .setSymbol("BTC/EUR")
+                .setInterval("5m")
+                .setTestRunId(testRunId)
+                .build(), market.context.context());
+        market.context.clear();
+        return market;
+    }
+
+    private RegisterTraderCommand registerTrader(String traderId, String interval, int shortPeriod, int longPeriod) {
+        return RegisterTraderCommand.newBuilder()
+                .setMarketId(MarketEntity.marketId(testRunId, "BTC/EUR", interval))
+                .setTraderId(traderId)
+                .setSymbol("BTC/EUR")
+                .setInterval(interval)
+                .addIndicators(spec(shortPeriod))
+                .addIndicators(spec(longPeriod))
+                .setTestRunId(testRunId)
+                .build();
+    }
+
+    private static IndicatorSpec spec(int period) {
+        return IndicatorSpec.newBuilder().setMaType("simple").setPeriod(period).build();
+    }
+
+    private static PublishCandlesCommand publishCandles(String marketId, List<CandleStick> candles) {
+        return PublishCandlesCommand.newBuilder().setMarketId(marketId).addAllCandles(candles).build();
+    }
+
+    /**
+     * @return candles closing at the end of the given minutes, every step minutes.
+     */
+    private static List<CandleStick> candles(int fromMinute, int toMinute, int step) {
+        var candles = new ArrayList<CandleStick>();
+        for (int minute = fromMinute; minute <= toMinute; minute += step) {
+            candles.add(CandleStick.newBuilder()
+                    .setTime(minute * MINUTE - 1)
+                    .setClosingPrice(30_000 + minute)
+                    .build());
+        }
+        return candles;
+    }
+
+    private static class Market {
+
+        private final MarketEntity entity;
+        private final TestCommandContext context;
+
+        Market(MarketEntity entity) {
+            this.entity = entity;
+            this.context = new TestCommandContext(entity);
+        }
+
+        List<CandleStick> published() {
+            return context.effects("PublishCandles").stream()
+                    .flatMap(effect -> ((PublishCandlesCommand) effect.getMessage()).getCandlesList().stream())
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.akkasls.hackathon.entities;
+
+import com.akkaserverless.javasdk.eventsourcedentity.CommandContext;
+import com.akkaserverless.javasdk.eventsourcedentity.EventHandler;
+import lombok.SneakyThrows;
+import lombok.Value;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Command context for entity tests. Emitting applies the event to the entity straight away, as the SDK does, events
+ * and effects are recorded so that tests can check them.
+ */
+class TestCommandContext {
+
+    private final Object entity;
+    private final List<Object> events = new ArrayList<>();
+    private final List<Effect> effects = new ArrayList<>();
+    private final Map<Object, Effect> calls = new IdentityHashMap<>();
+    private final CommandContext context;
+
+    TestCommandContext(Object entity) {
+        this.entity = entity;
+        this.context = proxy(CommandContext.class, this::commandContext);
+    }
+
+    CommandContext context() {
+        return context;
+    }
+
+    List<Object> events() {
+        return events;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> List<T> events(Class<T> type) {
+        return events.stream().filter(type::isInstance).map(event -> (T) event).collect(Collectors.toList());
+    }
+
+    List<Effect> effects() {
+        return effects;
+    }
+
+    List<Effect> effects(String method) {
+        return effects.stream().filter(effect -> effect.getMethod().equals(method)).collect(Collectors.toList());
+    }
+
+    void clear() {
+        events.clear();
+        effects.clear();
+    }
+
+    /**
+     * Applies an event to the entity as if it was replayed.
+     */
+    @SneakyThrows
+    void replay(Object event) {
+        for (var method : entity.getClass().getMethods()) {
+            if (method.isAnnotationPresent(EventHandler.class) && method.getParameterTypes()[0].isInstance(event)) {
+                method.invoke(entity, event);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No event handler for " + event.getClass().getSimpleName());
+    }
+
+    private Object commandContext(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "emit":
+                events.add(args[0]);
+                replay(args[0]);
+                return null;
+            case "effect":
+                var effect = calls.get(args[0]);
+                effects.add(new Effect(effect.getService(), effect.getMethod(), effect.getMessage(),
+                        args.length > 1 && (boolean) args[1]));
+                return null;
+            case "fail":
+                return new RuntimeException((String) args[0]);
+            case "serviceCallFactory":
+                return proxy(method.getReturnType(), (lookup, lookupArgs) ->
+                        proxy(lookup.getReturnType(), (createCall, createCallArgs) -> {
+                            var call = proxy(createCall.getReturnType(), (any, anyArgs) -> null);
+                            calls.put(call, new Effect((String) lookupArgs[0], (String) lookupArgs[1],
+                                    createCallArgs[0], false));
+                            return call;
+                        }));
+            case "entityId":
+                return "test";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == long.class) return 0L;
+        if (type == int.class) return 0;
+        if (type == boolean.class) return false;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName();
+                }
+            }
+            return handler.handle(method, args == null ? new Object[0] : Arrays.copyOf(args, args.length));
+        });
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args);
+    }
+
+    @Value
+    static class Effect {
+        String service;
+        String method;
+        Object message;
+        boolean synchronous;
+    }
+}
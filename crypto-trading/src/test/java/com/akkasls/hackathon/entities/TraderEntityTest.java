@@ -0,0 +1,315 @@
+package com.akkasls.hackathon.entities;
+
+
+import com.akkasls.hackathon.AddCandlesCommand;
+import com.akkasls.hackathon.CandleStick;
+import com.akkasls.hackathon.GetTraderCommand;
+import com.akkasls.hackathon.MovingAverageUpdated;
+import com.akkasls.hackathon.NewTraderCommand;
+import com.akkasls.hackathon.OrderPlaced;
+import com.akkasls.hackathon.RegisterTraderCommand;
+import com.akkasls.hackathon.TraderState;
+import com.akkasls.hackathon.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TraderEntityTest {
+
+    private static final long FIVE_MINUTES = 300_000;
+
+    // the registry of shared moving averages lives as long as the JVM, each test gets a test run of its own
+    private final String testRunId = UUID.randomUUID().toString();
+
+    private final TraderState trader = TraderState.newBuilder()
+            .setTestRunId(testRunId)
+            .setBaseAsset("BTC")
+            .setQuoteAsset("EUR")
+            .setInterval("5m")
+            .setMaType("simple")
+            .setShortMaPeriod(5)
+            .setLongMaPeriod(20)
+            .setBaseBalance(10)
+            .setQuoteBalance(100_000)
+            .setThreshold(0.001)
+            .build();
+
+    @Test
+    public void shouldRegisterWithItsMarket() {
+        var entity = new TraderEntity("trader-1");
+        var context = new TestCommandContext(entity);
+
+        entity.newTrader(NewTraderCommand.newBuilder().setTrader(trader).build(), context.context());
+
+        var registration = context.effects("RegisterTrader");
+        assertThat(registration).hasSize(1);
+        assertThat(registration.get(0).isSynchronous()).isTrue();
+        var command = (RegisterTraderCommand) registration.get(0).getMessage();
+        assertThat(command.getMarketId()).isEqualTo(testRunId + "_BTCEUR_5m");
+        assertThat(command.getTestRunId()).isEqualTo(testRunId);
+        assertThat(command.getTraderId()).isEqualTo("trader-1");
+        assertThat(command.getSymbol()).isEqualTo("BTC/EUR");
+        assertThat(command.getInterval()).isEqualTo("5m");
+    }
+
+    @Test
+    public void shouldRejectIndicatorsOtherThanMovingAverages() {
+        for (var maType : List.of("rsi", "macd", "bollinger", "unknown")) {
+            var entity = new TraderEntity("trader-1");
+            var context = new TestCommandContext(entity);
+
+            assertThatThrownBy(() -> entity.newTrader(NewTraderCommand.newBuilder()
+                    .setTrader(trader.toBuilder().setMaType(maType))
+                    .build(), context.context()))
+                    .hasMessageContaining("Unsupported moving average type: " + maType);
+            assertThat(context.events()).isEmpty();
+            assertThat(context.effects()).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldTradeTheSameWhenTradersOnTheSameMarketProcessTheSameBatch() {
+        var first = new Trader("trader-1", trader);
+        var second = new Trader("trader-2", trader);
+        // same parameters in another test run, so with moving averages of its own
+        var alone = new Trader("trader-3", trader.toBuilder().setTestRunId(UUID.randomUUID().toString()).build());
+
+        for (var batch : List.of(candles(0, 100), candles(100, 100))) {
+            first.addCandles(batch);
+            second.addCandles(batch);
+            alone.addCandles(batch);
+        }
+
+        assertThat(first.movingAverages(5)).hasSize(196);
+        assertThat(first.movingAverages(20)).hasSize(181);
+        assertThat(first.orders()).isNotEmpty();
+        for (var other : List.of(second, alone)) {
+            assertThat(other.movingAverages(5)).isEqualTo(first.movingAverages(5));
+            assertThat(other.movingAverages(20)).isEqualTo(first.movingAverages(20));
+            assertThat(other.orders()).isEqualTo(first.orders());
+            assertThat(other.state().getBaseBalance()).isEqualTo(first.state().getBaseBalance());
+            assertThat(other.state().getQuoteBalance()).isEqualTo(first.state().getQuoteBalance());
+        }
+    }
+
+    @Test
+    public void shouldSkipCandlesNotAfterTheLastOneProcessed() {
+        var redelivered = new Trader("trader-1", trader);
+        var inOrder = new Trader("trader-2", trader.toBuilder().setTestRunId(UUID.randomUUID().toString()).build());
+
+        redelivered.addCandles(candles(0, 30));
+        redelivered.addCandles(candles(20, 20));
+        redelivered.addCandles(candles(35, 5));
+        inOrder.addCandles(candles(0, 30));
+        inOrder.addCandles(candles(30, 10));
+
+        assertThat(redelivered.movingAverages(5)).isEqualTo(inOrder.movingAverages(5));
+        assertThat(redelivered.orders()).isEqualTo(inOrder.orders());
+        assertThat(redelivered.state().getQuoteBalance()).isEqualTo(inOrder.state().getQuoteBalance());
+    }
+
+    @Test
+    public void shouldCountRejectedOrdersOnceWhateverTheReplays() {
+        var rejectedOrders = Metrics.counter("orders_rejected_total");
+        var before = rejectedOrders.sum();
+        // not enough quote funds for any buy order
+        var poor = new Trader("trader-1", trader.toBuilder().setQuoteBalance(100).build());
+
+        poor.addCandles(candles(0, 200));
+        var replayed = new Trader("trader-1", trader.toBuilder().setQuoteBalance(100).build());
+        poor.context.events().stream().filter(OrderPlaced.class::isInstance).forEach(replayed.context::replay);
+
+        var rejected = poor.state().getRejectedOrders();
+        assertThat(rejected).isPositive();
+        assertThat(replayed.state().getRejectedOrders()).isEqualTo(rejected);
+        assertThat(rejectedOrders.sum() - before).isEqualTo(rejected);
+    }
+
+    @Test
+    public void shouldEmitMovingAveragesOfEveryCandleUnlessConfiguredOtherwise() {
+        var candle = candles(0, 1).get(0);
+        var above = Optional.of(movingAverage(5, 101));
+        var below = Optional.of(movingAverage(20, 100));
+
+        assertThat(TraderEntity.shouldEmitMovingAverages(0, candle, false, false, 1, above, below)).isTrue();
+        assertThat(TraderEntity.shouldEmitMovingAverages(0, candle, false, false, 1, Optional.empty(),
+                Optional.empty())).isTrue();
+    }
+
+    @Test
+    public void shouldEmitMovingAveragesOfTheLastCandleOrdersAndCrossovers() {
+        var every15Minutes = 3 * FIVE_MINUTES;
+        // first candle of the schedule
+        var candle = candles(0, 1).get(0);
+        var above = Optional.of(movingAverage(5, 101));
+        var below = Optional.of(movingAverage(20, 100));
+
+        assertThat(TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, false, false, 1, above, below))
+                .isFalse();
+        assertThat(TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, true, false, 1, above, below))
+                .isTrue();
+        assertThat(TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, false, true, 1, above, below))
+                .isTrue();
+        // short moving average was below the long one before the candle
+        assertThat(TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, false, false, -1, above, below))
+                .isTrue();
+        // no crossover until both moving averages are ready
+        assertThat(TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, false, false, -1, above,
+                Optional.empty())).isFalse();
+    }
+
+    @Test
+    public void shouldEmitMovingAveragesOfCandlesClosingOnTheSchedule() {
+        var every15Minutes = 3 * FIVE_MINUTES;
+        var above = Optional.of(movingAverage(5, 101));
+        var below = Optional.of(movingAverage(20, 100));
+
+        var emitted = candles(0, 9).stream()
+                .filter(candle -> TraderEntity.shouldEmitMovingAverages(every15Minutes, candle, false, false, 1,
+                        above, below))
+                .map(CandleStick::getTime)
+                .collect(Collectors.toList());
+
+        assertThat(emitted).containsExactly(3 * FIVE_MINUTES - 1, 6 * FIVE_MINUTES - 1, 9 * FIVE_MINUTES - 1);
+    }
+
+    @Test
+    public void shouldRestoreMovingAveragesFromCoalescedEvents() {
+        // orders only around crossovers, so that most moving averages are coalesced
+        var coalesced = trader.toBuilder().setMaUpdatesEvery(3).setThreshold(1).build();
+        var live = new Trader("trader-1", coalesced);
+        live.addCandles(candles(0, 100));
+        live.addCandles(candles(100, 7));
+        assertThat(live.movingAverages(5)).hasSizeLessThan(100);
+
+        // same events, replayed without any snapshot by a trader whose shared moving averages are ahead of it
+        var replayed = new Trader("trader-1");
+        live.context.events().forEach(replayed.context::replay);
+
+        assertSameWindows(replayed.entity.snapshot(), live.entity.snapshot());
+        live.context.clear();
+        live.addCandles(candles(107, 50));
+        replayed.addCandles(candles(107, 50));
+        assertSameMovingAverages(replayed.movingAverages(20), live.movingAverages(20));
+        assertThat(replayed.orders()).isEqualTo(live.orders());
+    }
+
+    @Test
+    public void shouldRestoreMovingAveragesFromSnapshotAndCoalescedEvents() {
+        // orders only around crossovers, so that most moving averages are coalesced
+        var coalesced = trader.toBuilder().setMaUpdatesEvery(3).setThreshold(1).build();
+        var live = new Trader("trader-1", coalesced);
+        live.addCandles(candles(0, 100));
+        var snapshot = live.entity.snapshot();
+        live.context.clear();
+        live.addCandles(candles(100, 7));
+        live.addCandles(candles(107, 20));
+
+        var replayed = new Trader("trader-1");
+        replayed.entity.handleSnapshot(snapshot);
+        live.context.events().forEach(replayed.context::replay);
+
+        assertSameWindows(replayed.entity.snapshot(), live.entity.snapshot());
+    }
+
+    @Test
+    public void shouldRestoreMovingAveragesFromSummaryEvents() {
+        var live = new Trader("trader-1", trader);
+        live.addSummary(candles(0, 100));
+        assertThat(live.movingAverages(5)).hasSize(1);
+
+        var replayed = new Trader("trader-1");
+        live.context.events().forEach(replayed.context::replay);
+
+        assertSameWindows(replayed.entity.snapshot(), live.entity.snapshot());
+    }
+
+    private static void assertSameWindows(TraderState actual, TraderState expected) {
+        assertThat(actual.getLastCandleTime()).isEqualTo(expected.getLastCandleTime());
+        for (var windows : List.of(List.of(actual.getShortMaWindow(), expected.getShortMaWindow()),
+                List.of(actual.getLongMaWindow(), expected.getLongMaWindow()))) {
+            assertThat(windows.get(0).getTime()).isEqualTo(windows.get(1).getTime());
+            assertThat(windows.get(0).getObservationsList()).isEqualTo(windows.get(1).getObservationsList());
+            assertThat(windows.get(0).getValue()).isCloseTo(windows.get(1).getValue(), within(1e-6));
+        }
+    }
+
+    private static void assertSameMovingAverages(List<MovingAverageUpdated> actual,
+                                                 List<MovingAverageUpdated> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getTime()).isEqualTo(expected.get(i).getTime());
+            assertThat(actual.get(i).getValue()).isCloseTo(expected.get(i).getValue(), within(1e-6));
+        }
+    }
+
+    private static MovingAverageUpdated movingAverage(int period, double value) {
+        return MovingAverageUpdated.newBuilder().setPeriod(period).setValue(value).build();
+    }
+
+    /**
+     * @return candles every 5 minutes with prices going up and down enough for the moving averages to cross.
+     */
+    private static List<CandleStick> candles(int from, int count) {
+        var candles = new ArrayList<CandleStick>();
+        for (int i = from; i < from + count; i++) {
+            candles.add(CandleStick.newBuilder()
+                    .setTime((i + 1) * FIVE_MINUTES - 1)
+                    .setClosingPrice(30_000 + 1_000 * Math.sin(i / 8.0))
+                    .build());
+        }
+        return candles;
+    }
+
+    private static class Trader {
+
+        private final TraderEntity entity;
+        private final TestCommandContext context;
+
+        Trader(String traderId, TraderState trader) {
+            this(traderId);
+            entity.newTrader(NewTraderCommand.newBuilder().setTrader(trader).build(), context.context());
+        }
+
+        /**
+         * A trader to be recovered from events or a snapshot.
+         */
+        Trader(String traderId) {
+            entity = new TraderEntity(traderId);
+            context = new TestCommandContext(entity);
+        }
+
+        void addCandles(List<CandleStick> candles) {
+            entity.addCandles(AddCandlesCommand.newBuilder().addAllCandles(candles).build(), context.context());
+        }
+
+        void addSummary(List<CandleStick> candles) {
+            entity.addCandles(AddCandlesCommand.newBuilder().addAllCandles(candles).setSummary(true).build(),
+                    context.context());
+        }
+
+        List<MovingAverageUpdated> movingAverages(int period) {
+            return context.events(MovingAverageUpdated.class).stream()
+                    .filter(event -> event.getPeriod() == period)
+                    .collect(Collectors.toList());
+        }
+
+        List<OrderPlaced> orders() {
+            return context.events(OrderPlaced.class).stream()
+                    .map(order -> order.toBuilder().clearTraderId().build())
+                    .collect(Collectors.toList());
+        }
+
+        TraderState state() {
+            return entity.getTrader(GetTraderCommand.getDefaultInstance());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.akkasls.hackathon.indicators;
+
+
+import com.akkasls.hackathon.indicators.IndicatorRegistry.Window;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndicatorRegistryTest {
+
+    @Test
+    public void shouldShareMovingAveragesWithSameParameters() {
+        var registry = new IndicatorRegistry();
+
+        var ma = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        var sameMa = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        var otherInterval = registry.subscribe("run-1", "BTC/EUR", "1m", "simple", 2);
+        var otherSymbol = registry.subscribe("run-1", "ETH/EUR", "5m", "simple", 2);
+        var otherRun = registry.subscribe("run-2", "BTC/EUR", "5m", "simple", 2);
+
+        assertThat(registry.size()).isEqualTo(4);
+        ma.valueAt(1, 2);
+        assertThat(sameMa.valueAt(2, 4)).isEqualTo(3);
+        assertThat(otherInterval.valueAt(2, 4)).isNaN();
+        assertThat(otherSymbol.valueAt(2, 4)).isNaN();
+        assertThat(otherRun.valueAt(2, 4)).isNaN();
+    }
+
+    @Test
+    public void shouldOnlyShareRegisteredMovingAverageTypes() {
+        var registry = new IndicatorRegistry();
+
+        var simple = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        var weighted = registry.subscribe("run-1", "BTC/EUR", "5m", "weighted", 2);
+
+        simple.valueAt(1, 2);
+        weighted.valueAt(1, 2);
+        assertThat(simple.valueAt(2, 4)).isEqualTo(3);
+        assertThat(weighted.valueAt(2, 4)).isEqualTo(10 / 3.0);
+        assertThat(registry.size()).isEqualTo(2);
+        assertThatThrownBy(() -> registry.subscribe("run-1", "BTC/EUR", "5m", "exactSimple", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.subscribe("run-1", "BTC/EUR", "5m", "rsi", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldUpdateOncePerCandleTime() {
+        var ma = new IndicatorRegistry().subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+
+        assertThat(ma.valueAt(1, 2)).isNaN();
+        assertThat(ma.valueAt(1, 2)).isNaN();
+        assertThat(ma.valueAt(2, 4)).isEqualTo(3);
+        assertThat(ma.valueAt(2, 4)).isEqualTo(3);
+        assertThat(ma.valueAt(3, 6)).isEqualTo(5);
+
+        // late reader of an older candle gets the value computed at that time
+        assertThat(ma.valueAt(2, 4)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldKeepHistoryForTheSlowestSubscriber() {
+        var registry = new IndicatorRegistry();
+        var first = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        var second = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+
+        // both traders start together, then the first one runs a whole batch ahead of the second one
+        first.valueAt(0, 0);
+        second.valueAt(0, 0);
+        for (int time = 1; time <= 1000; time++) {
+            assertThat(first.valueAt(time, time)).isEqualTo(time - 0.5);
+        }
+        for (int time = 1; time <= 1000; time++) {
+            assertThat(second.valueAt(time, time)).isEqualTo(time - 0.5);
+        }
+        assertThat(first.isPrivate()).isFalse();
+        assertThat(second.isPrivate()).isFalse();
+    }
+
+    @Test
+    public void shouldTrimHistoryOnceEverySubscriberIsPastIt() {
+        var registry = new IndicatorRegistry();
+        var first = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        var second = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+
+        for (int time = 0; time < 1000; time++) {
+            first.valueAt(time, time);
+            second.valueAt(time, time);
+        }
+
+        assertThat(first.historySize()).isLessThanOrEqualTo(64);
+    }
+
+    @Test
+    public void shouldSwitchToPrivateMovingAverageWhenBehind() {
+        var registry = new IndicatorRegistry();
+        var ahead = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        for (int time = 0; time < 1000; time++) {
+            ahead.valueAt(time, time);
+        }
+
+        // restored from a snapshot at a candle the shared moving average no longer has
+        var behind = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+        behind.restore(new Window(10, new double[]{9, 10}, 9.5));
+
+        assertThat(behind.valueAt(11, 1)).isEqualTo(5.5);
+        assertThat(behind.isPrivate()).isTrue();
+        assertThat(behind.valueAt(12, 3)).isEqualTo(2);
+        assertThat(behind.window().getTime()).isEqualTo(12);
+        // the shared moving average is not affected
+        assertThat(ahead.valueAt(1000, 1000)).isEqualTo(999.5);
+        assertThat(ahead.isPrivate()).isFalse();
+    }
+
+    @Test
+    public void shouldSnapshotAsOfTheCandleOfTheSubscriber() {
+        var registry = new IndicatorRegistry();
+        var ahead = registry.subscribe("run-1", "BTC/EUR", "5m", "exponential", 3);
+        var behind = registry.subscribe("run-1", "BTC/EUR", "5m", "exponential", 3);
+        for (int time = 0; time < 5; time++) {
+            ahead.valueAt(time, time);
+            behind.valueAt(time, time);
+        }
+        for (int time = 5; time < 10; time++) {
+            ahead.valueAt(time, time * time);
+        }
+
+        var window = behind.window();
+
+        assertThat(window.getTime()).isEqualTo(4);
+        var restored = new IndicatorRegistry()
+                .subscribe("run-1", "BTC/EUR", "5m", "exponential", 3);
+        restored.restore(window);
+        for (int time = 5; time < 10; time++) {
+            assertThat(restored.valueAt(time, time * time)).isEqualTo(behind.valueAt(time, time * time));
+        }
+        assertThat(ahead.window().getTime()).isEqualTo(9);
+    }
+
+    @Test
+    public void shouldRestoreSharedMovingAverageWhenNotAhead() {
+        var registry = new IndicatorRegistry();
+        var ma = registry.subscribe("run-1", "BTC/EUR", "5m", "simple", 2);
+
+        ma.restore(new Window(10, new double[]{9, 10}, 9.5));
+
+        assertThat(ma.valueAt(11, 11)).isEqualTo(10.5);
+        assertThat(ma.isPrivate()).isFalse();
+    }
+}
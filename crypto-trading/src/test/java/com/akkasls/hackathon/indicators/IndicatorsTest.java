@@ -0,0 +1,204 @@
+package com.akkasls.hackathon.indicators;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class IndicatorsTest {
+
+    private static final double[] PRICES = IntStream.range(0, 2_000)
+            .mapToDouble(i -> 30_000 + Math.sin(i / 10.0) * 1_000 + i * 0.5)
+            .toArray();
+
+    @Test
+    public void shouldLookUpIndicatorsByType() {
+        assertThat(Indicators.movingAverageTypes()).contains("simple", "exponential", "weighted", "hull");
+        assertThat(Indicators.technicalIndicatorTypes()).containsExactlyInAnyOrder("rsi", "bollinger", "macd");
+        assertThat(Indicators.ofType("weighted").apply(3).period).isEqualTo(3);
+        assertThat(Indicators.technicalIndicatorOfType("rsi").apply(14).period()).isEqualTo(14);
+        assertThatThrownBy(() -> Indicators.ofType("unknown")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Indicators.technicalIndicatorOfType("simple"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Indicators.register("simple", MovingAverages::simple))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Indicators.register("rsi", MovingAverages::simple))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldOnlyLetTradersSelectMovingAverages() {
+        assertThat(Indicators.movingAverageTypes()).doesNotContain("rsi", "bollinger", "macd");
+        assertThat(Indicators.isMovingAverage("simple")).isTrue();
+        assertThat(Indicators.isMovingAverage("macd")).isFalse();
+        assertThat(Indicators.isMovingAverage("unknown")).isFalse();
+        assertThatThrownBy(() -> Indicators.ofType("rsi")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldCalculateWeightedMa() {
+        var ma = MovingAverages.weighted(3);
+        ma.updateWith(1).updateWith(2);
+        assertThat(ma.value()).isEmpty();
+
+        ma.updateWith(3);
+        assertThat(ma.getValue()).isCloseTo((1 + 2 * 2 + 3 * 3) / 6.0, within(1e-12));
+
+        ma.updateWith(4);
+        assertThat(ma.getValue()).isCloseTo((2 + 3 * 2 + 4 * 3) / 6.0, within(1e-12));
+
+        var period = 20;
+        var longMa = MovingAverages.weighted(period);
+        for (int i = 0; i < PRICES.length; i++) {
+            longMa.updateWith(PRICES[i]);
+        }
+        assertThat(longMa.getValue()).isCloseTo(weighted(PRICES, PRICES.length, period), within(1e-6));
+    }
+
+    @Test
+    public void shouldCalculateHullMa() {
+        var period = 16;
+        var hull = MovingAverages.hull(period);
+        var differences = new double[PRICES.length];
+        for (int i = 0; i < PRICES.length; i++) {
+            hull.updateWith(PRICES[i]);
+            if (i >= period - 1) {
+                differences[i] = 2 * weighted(PRICES, i + 1, period / 2) - weighted(PRICES, i + 1, period);
+            }
+        }
+
+        assertThat(hull.getValue()).isCloseTo(weighted(differences, differences.length, 4), within(1e-6));
+    }
+
+    @Test
+    public void shouldCalculateRsi() {
+        var rsi = new RelativeStrengthIndex(3);
+        rsi.updateWith(10).updateWith(11).updateWith(10);
+        assertThat(rsi.value()).isEmpty();
+
+        // gains 1, 0, 2 and losses 0, 1, 0
+        rsi.updateWith(12);
+        assertThat(rsi.getValue()).isCloseTo(100 - 100 / (1 + 3.0), within(1e-9));
+
+        // gain 0 and loss 1 smoothed over the period
+        rsi.updateWith(11);
+        var averageGain = (1.0 - 1.0 / 3);
+        var averageLoss = (1.0 / 3 + (1 - 1.0 / 3) / 3);
+        assertThat(rsi.getValue()).isCloseTo(100 - 100 / (1 + averageGain / averageLoss), within(1e-9));
+    }
+
+    @Test
+    public void shouldCalculateBollingerBands() {
+        var period = 20;
+        var bands = new BollingerBands(period);
+        for (var price : PRICES) {
+            bands.updateWith(price);
+        }
+
+        var mean = IntStream.range(PRICES.length - period, PRICES.length).mapToDouble(i -> PRICES[i]).sum() / period;
+        var variance = IntStream.range(PRICES.length - period, PRICES.length)
+                .mapToDouble(i -> (PRICES[i] - mean) * (PRICES[i] - mean)).sum() / period;
+        assertThat(bands.getValue()).isCloseTo(mean, within(1e-6));
+        assertThat(bands.standardDeviation()).isCloseTo(Math.sqrt(variance), within(1e-6));
+        assertThat(bands.upper()).isCloseTo(mean + 2 * Math.sqrt(variance), within(1e-6));
+        assertThat(bands.lower()).isCloseTo(mean - 2 * Math.sqrt(variance), within(1e-6));
+    }
+
+    @Test
+    public void shouldCalculateMacd() {
+        var macd = new Macd(12);
+        var fast = MovingAverages.exponential(12);
+        var slow = MovingAverages.exponential(26);
+        var signal = MovingAverages.exponential(9);
+        for (var price : PRICES) {
+            macd.updateWith(price);
+            fast.updateWith(price);
+            slow.updateWith(price);
+            if (slow.isReady()) {
+                signal.updateWith(fast.getValue() - slow.getValue());
+            }
+        }
+
+        assertThat(macd.getValue()).isCloseTo(fast.getValue() - slow.getValue(), within(1e-9));
+        assertThat(macd.signal()).isCloseTo(signal.getValue(), within(1e-9));
+    }
+
+    @Test
+    public void shouldRestoreEveryMovingAverageType() {
+        for (var type : Indicators.movingAverageTypes()) {
+            for (var warmUp : new int[]{3, 15, 500}) {
+                var movingAverage = Indicators.ofType(type).apply(10);
+                for (int i = 0; i < warmUp; i++) {
+                    movingAverage.updateWith(PRICES[i]);
+                }
+                var restored = Indicators.ofType(type).apply(10)
+                        .restore(movingAverage.observations(), movingAverage.getValue());
+                for (int i = warmUp; i < warmUp + 50; i++) {
+                    assertSameValue(type, i, restored.updateWith(PRICES[i]).getValue(),
+                            movingAverage.updateWith(PRICES[i]).getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldRestoreEveryTechnicalIndicatorType() {
+        for (var type : Indicators.technicalIndicatorTypes()) {
+            for (var warmUp : new int[]{0, 3, 15, 500}) {
+                var indicator = Indicators.technicalIndicatorOfType(type).apply(10);
+                for (int i = 0; i < warmUp; i++) {
+                    indicator.updateWith(PRICES[i]);
+                }
+                var restored = restored(type, indicator);
+                for (int i = warmUp; i < warmUp + 50; i++) {
+                    assertSameValue(type, i, restored.updateWith(PRICES[i]).getValue(),
+                            indicator.updateWith(PRICES[i]).getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldRestoreTechnicalIndicatorsFromTheirOwnState() {
+        var rsi = new RelativeStrengthIndex(3).updateWith(10).updateWith(11).updateWith(10).updateWith(12);
+        assertThat(rsi.state()).isEqualTo(new RelativeStrengthIndex.State(3, 12, 1, 1.0 / 3));
+
+        var bands = new BollingerBands(3).updateWith(1).updateWith(2).updateWith(3).updateWith(4);
+        assertThat(bands.state().getObservations()).containsExactly(2, 3, 4);
+
+        var macd = new Macd(2);
+        for (int i = 0; i < 10; i++) {
+            macd.updateWith(PRICES[i]);
+        }
+        var restored = new Macd(2).restore(macd.state());
+        assertThat(restored.getValue()).isEqualTo(macd.getValue());
+        assertThat(restored.signal()).isEqualTo(macd.signal());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> TechnicalIndicator<S> restored(String type, TechnicalIndicator<S> indicator) {
+        var restored = (TechnicalIndicator<S>) Indicators.technicalIndicatorOfType(type).apply(indicator.period());
+        return restored.restore(indicator.state());
+    }
+
+    private static void assertSameValue(String type, int i, double actual, double expected) {
+        var assertion = assertThat(actual).as("%s after %d observations", type, i + 1);
+        if (Double.isNaN(expected)) {
+            assertion.isNaN();
+        } else {
+            assertion.isCloseTo(expected, within(1e-6));
+        }
+    }
+
+    private static double weighted(double[] values, int end, int period) {
+        double weightedSum = 0;
+        for (int i = 0; i < period; i++) {
+            weightedSum += (i + 1) * values[end - period + i];
+        }
+        return weightedSum / (period * (period + 1) / 2.0);
+    }
+}
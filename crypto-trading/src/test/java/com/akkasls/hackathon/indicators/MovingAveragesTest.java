@@ -7,6 +7,7 @@ import java.math.BigDecimal;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class MovingAveragesTest {
 
@@ -15,14 +16,14 @@ class MovingAveragesTest {
         var ma = MovingAverages.simple(5);
         assertThat(ma.value()).isEmpty();
 
-        IntStream.range(1, 5).mapToObj(BigDecimal::valueOf).forEach(bd ->
-                assertThat(ma.updateWith(bd).value()).isEmpty()
+        IntStream.range(1, 5).forEach(i ->
+                assertThat(ma.updateWith(i).value()).isEmpty()
         );
-        ma.updateWith(BigDecimal.valueOf(5));
-        assertThat(ma.value()).contains(BigDecimal.valueOf(3));
+        ma.updateWith(5);
+        assertThat(ma.value()).hasValue(3);
 
-        ma.updateWith(BigDecimal.valueOf(6));
-        assertThat(ma.value()).contains(BigDecimal.valueOf(4));
+        ma.updateWith(6);
+        assertThat(ma.value()).hasValue(4);
     }
 
     @Test
@@ -30,13 +31,60 @@ class MovingAveragesTest {
         var ma = MovingAverages.exponential(5);
         assertThat(ma.value()).isEmpty();
 
-        IntStream.range(1, 5).mapToObj(BigDecimal::valueOf).forEach(bd ->
-                assertThat(ma.updateWith(bd).value()).isEmpty()
+        IntStream.range(1, 5).forEach(i ->
+                assertThat(ma.updateWith(i).value()).isEmpty()
         );
-        ma.updateWith(BigDecimal.valueOf(5));
-        assertThat(ma.value()).contains(BigDecimal.valueOf(3));
+        ma.updateWith(5);
+        assertThat(ma.value()).hasValue(3);
+
+        ma.updateWith(6);
+        assertThat(ma.value()).hasValue(4);
+    }
+
+    @Test
+    public void shouldNotDriftOverLongSeries() {
+        var fast = MovingAverages.simple(20);
+        var exact = MovingAverages.exactSimple(20);
+
+        IntStream.range(0, 100_000).mapToDouble(i -> 30_000 + Math.sin(i) * 1_000 + i * 0.01).forEach(price -> {
+            fast.updateWith(price);
+            exact.updateWith(price);
+        });
+
+        assertThat(fast.getValue()).isCloseTo(exact.getValue(), within(1e-6));
+    }
+
+    @Test
+    public void shouldRestoreFromObservationsAndValue() {
+        var sma = MovingAverages.simple(3);
+        var ema = MovingAverages.exponential(3);
+        var warmingUpEma = MovingAverages.exponential(3);
+        IntStream.range(1, 8).forEach(i -> {
+            sma.updateWith(i);
+            ema.updateWith(i);
+        });
+        warmingUpEma.updateWith(1).updateWith(2);
+
+        var restoredSma = MovingAverages.simple(3).restore(sma.observations(), sma.getValue());
+        var restoredEma = MovingAverages.exponential(3).restore(ema.observations(), ema.getValue());
+        var restoredWarmingUpEma = MovingAverages.exponential(3)
+                .restore(warmingUpEma.observations(), warmingUpEma.getValue());
+
+        assertThat(sma.observations()).containsExactly(5, 6, 7);
+        assertThat(restoredSma.updateWith(8).getValue()).isEqualTo(sma.updateWith(8).getValue());
+        assertThat(restoredEma.updateWith(8).getValue()).isEqualTo(ema.updateWith(8).getValue());
+        assertThat(restoredWarmingUpEma.updateWith(3).getValue()).isEqualTo(warmingUpEma.updateWith(3).getValue());
+    }
+
+    @Test
+    public void shouldCalculateExactSimpleMa() {
+        var ma = MovingAverages.exactSimple(5);
+        assertThat(ma.exactValue()).isEmpty();
+
+        IntStream.range(1, 6).mapToObj(BigDecimal::valueOf).forEach(ma::updateWith);
+        assertThat(ma.exactValue()).contains(BigDecimal.valueOf(3));
 
         ma.updateWith(BigDecimal.valueOf(6));
-        assertThat(ma.value()).contains(BigDecimal.valueOf(3));
+        assertThat(ma.exactValue()).contains(BigDecimal.valueOf(4));
     }
-}
\ No newline at end of file
+}
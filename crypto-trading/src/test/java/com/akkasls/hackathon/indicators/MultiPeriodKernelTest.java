@@ -0,0 +1,52 @@
+package com.akkasls.hackathon.indicators;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MultiPeriodKernelTest {
+
+    private static final double[] PRICES = IntStream.range(0, 5_000)
+            .mapToDouble(i -> 30_000 + Math.sin(i / 10.0) * 1_000 + i * 0.5)
+            .toArray();
+
+    private static final int[] PERIODS = {20, 5, 110, 5, 1};
+
+    @Test
+    public void shouldMatchSimpleMovingAverages() {
+        assertMatches(MultiPeriodKernel.simple(PRICES, PERIODS), MovingAverages::simple);
+    }
+
+    @Test
+    public void shouldMatchExponentialMovingAverages() {
+        assertMatches(MultiPeriodKernel.exponential(PRICES, PERIODS), MovingAverages::exponential);
+    }
+
+    @Test
+    public void shouldNotBeReadyWithFewerPricesThanPeriod() {
+        var prices = new double[]{1, 2, 3};
+
+        assertThat(MultiPeriodKernel.simple(prices, new int[]{5})[0]).containsOnly(Double.NaN);
+        assertThat(MultiPeriodKernel.exponential(prices, new int[]{5})[0]).containsOnly(Double.NaN);
+    }
+
+    private static void assertMatches(double[][] values, IntFunction<MovingAverages.MovingAverage> factory) {
+        assertThat(values).hasNumberOfRows(PERIODS.length);
+        for (int j = 0; j < PERIODS.length; j++) {
+            var movingAverage = factory.apply(PERIODS[j]);
+            for (int i = 0; i < PRICES.length; i++) {
+                var expected = movingAverage.updateWith(PRICES[i]).getValue();
+                if (Double.isNaN(expected)) {
+                    assertThat(values[j][i]).isNaN();
+                } else {
+                    assertThat(values[j][i]).isCloseTo(expected, within(1e-6));
+                }
+            }
+        }
+    }
+}
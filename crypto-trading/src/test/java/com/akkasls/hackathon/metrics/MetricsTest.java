@@ -0,0 +1,29 @@
+package com.akkasls.hackathon.metrics;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsTest {
+
+    @Test
+    public void shouldRenderCountersWithSortedLabels() {
+        Metrics.counter("test_total", "market", "BTCEUR_5m", "asset", "BTC").add(3);
+        Metrics.counter("test_total", "asset", "BTC", "market", "BTCEUR_5m").increment();
+
+        assertThat(Metrics.render()).contains("test_total{asset=\"BTC\",market=\"BTCEUR_5m\"} 4\n");
+    }
+
+    @Test
+    public void shouldRenderLatencySummaries() {
+        var latency = Metrics.latency("test_latency", "view", "balance");
+        latency.record(1_000_000);
+        latency.record(3_000_000);
+
+        assertThat(Metrics.render())
+                .contains("test_latency_seconds{view=\"balance\",quantile=\"0.5\"} 0.001")
+                .contains("test_latency_seconds_max{view=\"balance\"} 0.003")
+                .contains("test_latency_seconds_count{view=\"balance\"} 2\n");
+    }
+}
@@ -0,0 +1,60 @@
+package com.akkasls.hackathon.metrics;
+
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledLoggerTest {
+
+    private final List<List<Object>> warnings = new ArrayList<>();
+
+    /**
+     * Records the format and arguments of every warning, whichever overload it went through.
+     */
+    private final Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(),
+            new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+                if (method.getName().equals("warn")) {
+                    var warning = new ArrayList<>();
+                    warning.add(args[0]);
+                    for (int i = 1; i < args.length; i++) {
+                        if (args[i] instanceof Object[]) {
+                            warning.addAll(Arrays.asList((Object[]) args[i]));
+                        } else {
+                            warning.add(args[i]);
+                        }
+                    }
+                    warnings.add(warning);
+                }
+                return method.getReturnType() == boolean.class ? false : null;
+            });
+
+    @Test
+    public void shouldLogEveryArgumentOfTheFirstWarning() {
+        new SampledLogger(logger, Duration.ofHours(1)).warn("not enough funds for {} to {}", "trader-1", "BUY");
+
+        assertThat(warnings).containsExactly(List.of("not enough funds for {} to {}", "trader-1", "BUY"));
+    }
+
+    @Test
+    public void shouldCountTheWarningsSuppressedInBetween() throws InterruptedException {
+        var sampled = new SampledLogger(logger, Duration.ofMillis(50));
+
+        sampled.warn("skipped {} candles of {} at {}", 1, "trader-1", 10L);
+        sampled.warn("skipped {} candles of {} at {}", 2, "trader-1", 20L);
+        sampled.warn("skipped {} candles of {} at {}", 3, "trader-1", 30L);
+        Thread.sleep(100);
+        sampled.warn("skipped {} candles of {} at {}", 4, "trader-1", 40L);
+
+        assertThat(warnings).containsExactly(
+                List.of("skipped {} candles of {} at {}", 1, "trader-1", 10L),
+                List.of("skipped {} candles of {} at {} ({} similar messages suppressed)", 4, "trader-1", 40L, 2L));
+    }
+}
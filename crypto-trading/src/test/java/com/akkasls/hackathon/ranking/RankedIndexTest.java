@@ -0,0 +1,83 @@
+package com.akkasls.hackathon.ranking;
+
+
+import com.akkasls.hackathon.ranking.RankedIndex.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankedIndexTest {
+
+    @Test
+    public void shouldRankByScoreThenTraderId() {
+        var index = new RankedIndex();
+        index.put("c", 10);
+        index.put("a", 20);
+        index.put("b", 10);
+
+        assertThat(index.top(10)).containsExactly(new Entry("a", 20), new Entry("b", 10), new Entry("c", 10));
+        assertThat(index.rank("c")).hasValue(3);
+        assertThat(index.atRank(2)).hasValue(new Entry("b", 10));
+        assertThat(index.atRank(4)).isEmpty();
+    }
+
+    @Test
+    public void shouldMoveTradersWhenTheirScoreChanges() {
+        var index = new RankedIndex();
+        index.put("a", 20);
+        index.put("b", 10);
+
+        assertThat(index.put("b", 10)).isFalse();
+        assertThat(index.put("b", 30)).isTrue();
+        assertThat(index.top(1)).containsExactly(new Entry("b", 30));
+        assertThat(index.remove("b")).isTrue();
+        assertThat(index.rank("b")).isEmpty();
+        assertThat(index.rank("a")).hasValue(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAnswerPercentiles() {
+        var index = new RankedIndex();
+        for (int i = 1; i <= 100; i++) {
+            index.put("trader" + i, i);
+        }
+
+        assertThat(index.atPercentile(100)).hasValue(new Entry("trader100", 100));
+        assertThat(index.atPercentile(50)).hasValue(new Entry("trader50", 50));
+        assertThat(index.atPercentile(0)).hasValue(new Entry("trader1", 1));
+    }
+
+    @Test
+    public void shouldMatchSortingAfterRandomUpdates() {
+        var index = new RankedIndex();
+        var scores = new HashMap<String, Double>();
+        var random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            var traderId = "trader" + random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                index.remove(traderId);
+                scores.remove(traderId);
+            } else {
+                var score = (double) random.nextInt(100);
+                index.put(traderId, score);
+                scores.put(traderId, score);
+            }
+        }
+
+        var sorted = scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(entry -> new Entry(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        assertThat(index.top(sorted.size())).containsExactlyElementsOf(sorted);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertThat(index.rank(sorted.get(i).getTraderId())).hasValue(i + 1);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.akkasls.hackathon.startup;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeImageConfigTest {
+
+    @Test
+    public void shouldListMessagesBuildersAndComponents() {
+        var config = NativeImageConfig.reflectConfig();
+
+        assertThat(config)
+                .startsWith("[\n")
+                .endsWith("]\n")
+                .contains("\"name\": \"com.akkasls.hackathon.TraderState\",")
+                .contains("\"name\": \"com.akkasls.hackathon.TraderState$Builder\",")
+                .contains("\"name\": \"com.google.protobuf.Empty\",")
+                .contains("\"name\": \"com.akkasls.hackathon.entities.TraderEntity\",")
+                .contains("\"name\": \"com.akkasls.hackathon.views.TraderProjectionView\",");
+    }
+}
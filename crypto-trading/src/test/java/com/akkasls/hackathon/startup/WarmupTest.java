@@ -0,0 +1,18 @@
+package com.akkasls.hackathon.startup;
+
+
+import com.akkasls.hackathon.indicators.IndicatorRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmupTest {
+
+    @Test
+    public void shouldPlaceOrdersWithoutTouchingSharedIndicators() {
+        var sharedIndicators = IndicatorRegistry.shared().size();
+
+        assertThat(Warmup.run(1_000)).isPositive();
+        assertThat(IndicatorRegistry.shared().size()).isEqualTo(sharedIndicators);
+    }
+}
@@ -0,0 +1,34 @@
+package com.akkasls.hackathon.views;
+
+
+import com.akkasls.hackathon.Indicator;
+import com.akkasls.hackathon.IndicatorUpdated;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndicatorViewTest {
+
+    @Test
+    public void shouldKeepTheLatestValueOfEachIndicator() {
+        var view = new IndicatorView();
+        var indicator = Indicator.newBuilder()
+                .setIndicatorId("run-1_BTCEUR_5m_simple_5")
+                .setSymbol("BTC/EUR")
+                .setInterval("5m")
+                .setTestRunId("run-1")
+                .setMaType("simple")
+                .setPeriod(5)
+                .setValue(30_000)
+                .setTime(300_000 - 1)
+                .build();
+
+        var row = view.processIndicatorUpdated(IndicatorUpdated.newBuilder()
+                .setIndicator(indicator)
+                .addObservations(30_000)
+                .addTimes(300_000 - 1)
+                .build());
+
+        assertThat(row).isEqualTo(indicator);
+    }
+}